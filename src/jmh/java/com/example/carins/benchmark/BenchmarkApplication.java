@@ -0,0 +1,85 @@
+package com.example.carins.benchmark;
+
+import com.example.carins.CarInsuranceApplication;
+import com.example.carins.service.ClaimAnalyticsIndex;
+import com.example.carins.service.ClaimColumnSnapshot;
+import com.example.carins.service.PolicyCoverageIndex;
+import com.example.carins.service.SyntheticDataGenerator;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * The application context (no web server) on an in-memory H2 database loaded by the {@link SyntheticDataGenerator}.
+ * One context per fork; the sizes are JMH parameters, e.g. -p cars=100000 -p claimsPerCar=20.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkApplication {
+
+    @Param("100")
+    public int owners;
+
+    @Param("10000")
+    public int cars;
+
+    @Param("5")
+    public double policiesPerCar;
+
+    @Param("10")
+    public double claimsPerCar;
+
+    @Param("0.05")
+    public double overlapRate;
+
+    @Param("42")
+    public long seed;
+
+    static final LocalDate FIRST_DAY = SyntheticDataGenerator.FIRST_DAY;
+    static final int DAYS = (int) ChronoUnit.DAYS.between(SyntheticDataGenerator.FIRST_DAY, SyntheticDataGenerator.LAST_DAY) + 1;
+
+    ConfigurableApplicationContext context;
+    private long firstCarId;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = configure(new SpringApplicationBuilder(CarInsuranceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.show-sql=false",
+                        "carins.claims.journal.dir=target/claim-journal/${random.uuid}",
+                        "logging.level.root=WARN"))
+                .run();
+        var spec = new SyntheticDataGenerator.Spec(owners, cars, policiesPerCar, claimsPerCar, overlapRate, seed);
+        firstCarId = context.getBean(SyntheticDataGenerator.class).generate(spec).firstCarId();
+        context.getBean(PolicyCoverageIndex.class).rebuild();
+        context.getBean(ClaimAnalyticsIndex.class).rebuild();
+        context.getBean(ClaimColumnSnapshot.class).reload();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    // lets a benchmark add profiles or properties to the context it runs against
+    protected SpringApplicationBuilder configure(SpringApplicationBuilder builder) {
+        return builder;
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    long carId(int i) {
+        return firstCarId + Math.floorMod(i, cars);
+    }
+}
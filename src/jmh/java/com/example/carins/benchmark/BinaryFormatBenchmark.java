@@ -0,0 +1,96 @@
+package com.example.carins.benchmark;
+
+import com.example.carins.web.dto.CarDto;
+import com.example.carins.web.dto.CarHistoryDto;
+import com.example.carins.web.dto.CarHistoryEventType;
+import com.example.carins.web.dto.ClaimResponseDto;
+import com.example.carins.web.dto.InsurancePolicyResponseDto;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON against CBOR for the bodies internal clients exchange most: a page of 100 cars, 50 history events, 50 claims
+ * and 50 policies. encode and decode go through mappers built like the application's; the size of one encoded body
+ * is printed when the trial starts. No application context is needed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BinaryFormatBenchmark {
+
+    @Param({"json", "cbor"})
+    public String format;
+
+    @Param({"cars", "history", "claims", "policies"})
+    public String payload;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private Object value;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        ObjectMapper mapper = format.equals("cbor") ? builder.factory(new CBORFactory()).build() : builder.build();
+        LocalDate day = LocalDate.of(2024, 1, 1);
+        List<Object> values = new ArrayList<>();
+        TypeReference<?> type = switch (payload) {
+            case "cars" -> {
+                for (long id = 1; id <= 100; id++) {
+                    values.add(new CarDto(id, "VIN" + (100000 + id), "Dacia", "Logan", 2018, id % 10, "Owner " + id % 10, "owner" + id % 10 + "@example.com"));
+                }
+                yield new TypeReference<List<CarDto>>() {};
+            }
+            case "history" -> {
+                for (int i = 0; i < 50; i++) {
+                    values.add(new CarHistoryDto(i % 5 == 0 ? CarHistoryEventType.POLICY : CarHistoryEventType.CLAIM,
+                            "Claim submitted on " + day.plusDays(7L * i) + ": Broken mirror, amount 300.00", day.plusDays(7L * i)));
+                }
+                yield new TypeReference<List<CarHistoryDto>>() {};
+            }
+            case "claims" -> {
+                for (long id = 1; id <= 50; id++) {
+                    values.add(new ClaimResponseDto(id, 42L, day.plusDays(id), "Broken mirror", new BigDecimal("300.00").add(BigDecimal.valueOf(id))));
+                }
+                yield new TypeReference<List<ClaimResponseDto>>() {};
+            }
+            default -> {
+                for (long id = 1; id <= 50; id++) {
+                    values.add(new InsurancePolicyResponseDto(id, id, "Allianz", day.plusDays(id), day.plusDays(id).plusYears(1)));
+                }
+                yield new TypeReference<List<InsurancePolicyResponseDto>>() {};
+            }
+        };
+        writer = mapper.writerFor(type);
+        reader = mapper.readerFor(type);
+        value = values;
+        encoded = writer.writeValueAsBytes(value);
+        System.out.printf("%s %s payload: %d bytes%n", format, payload, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return writer.writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return reader.readValue(encoded);
+    }
+}
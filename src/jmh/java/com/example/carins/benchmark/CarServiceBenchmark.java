@@ -0,0 +1,54 @@
+package com.example.carins.benchmark;
+
+import com.example.carins.service.CarService;
+import com.example.carins.web.dto.CarDto;
+import com.example.carins.web.dto.CarHistoryDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CarServiceBenchmark {
+
+    private CarService carService;
+    private SplittableRandom random;
+    private BenchmarkApplication app;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkApplication app) {
+        this.app = app;
+        this.carService = app.bean(CarService.class);
+        this.random = new SplittableRandom(app.seed);
+    }
+
+    @Benchmark
+    public boolean isInsuranceValid() {
+        LocalDate date = BenchmarkApplication.FIRST_DAY.plusDays(random.nextInt(BenchmarkApplication.DAYS));
+        return carService.isInsuranceValid(app.carId(random.nextInt()), date);
+    }
+
+    @Benchmark
+    public List<CarHistoryDto> getCarHistory() {
+        return carService.getCarHistory(app.carId(random.nextInt()));
+    }
+
+    @Benchmark
+    public List<CarDto> listCarsPage() {
+        return carService.listCars(app.carId(random.nextInt()) - 1, 100);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 2, time = 5)
+    @Measurement(iterations = 3, time = 5)
+    public List<CarDto> listCars() {
+        return carService.listCars();
+    }
+}
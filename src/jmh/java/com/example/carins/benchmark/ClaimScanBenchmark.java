@@ -0,0 +1,69 @@
+package com.example.carins.benchmark;
+
+import com.example.carins.model.Claim;
+import com.example.carins.repo.ClaimRepository;
+import com.example.carins.service.ClaimColumnSnapshot;
+import com.example.carins.web.dto.ClaimScanResultDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// a one-year window of claims above an amount, answered from the columnar snapshot and by loading every claim through JPA
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ClaimScanBenchmark {
+
+    private static final BigDecimal MIN_AMOUNT = new BigDecimal("500");
+
+    private ClaimColumnSnapshot snapshot;
+    private ClaimRepository claimRepository;
+    private TransactionTemplate readOnlyTx;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkApplication app) {
+        this.snapshot = app.bean(ClaimColumnSnapshot.class);
+        this.claimRepository = app.bean(ClaimRepository.class);
+        this.readOnlyTx = new TransactionTemplate(app.bean(PlatformTransactionManager.class));
+        this.readOnlyTx.setReadOnly(true);
+        this.random = new SplittableRandom(app.seed);
+    }
+
+    @Benchmark
+    public ClaimScanResultDto snapshotScan() {
+        LocalDate from = randomDay();
+        return snapshot.scan(from, from.plusYears(1), MIN_AMOUNT, null, null, null);
+    }
+
+    @Benchmark
+    public ClaimScanResultDto snapshotScanByDescription() {
+        LocalDate from = randomDay();
+        return snapshot.scan(from, from.plusYears(1), MIN_AMOUNT, null, null, "hail");
+    }
+
+    @Benchmark
+    @Warmup(iterations = 2, time = 5)
+    @Measurement(iterations = 3, time = 5)
+    public BigDecimal jpaScan() {
+        LocalDate from = randomDay();
+        LocalDate to = from.plusYears(1);
+        return readOnlyTx.execute(status -> claimRepository.findAll().stream()
+                .filter(claim -> !claim.getClaimDate().isBefore(from) && !claim.getClaimDate().isAfter(to))
+                .map(Claim::getAmount)
+                .filter(amount -> amount.compareTo(MIN_AMOUNT) >= 0)
+                .reduce(BigDecimal.ZERO, BigDecimal::add));
+    }
+
+    private LocalDate randomDay() {
+        return BenchmarkApplication.FIRST_DAY.plusDays(random.nextInt(BenchmarkApplication.DAYS));
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.carins.benchmark;
+
+import com.example.carins.service.ClaimService;
+import com.example.carins.web.dto.ClaimCreateRequestDto;
+import com.example.carins.web.dto.ClaimResponseDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// every invocation inserts a claim, so the claim table grows during the run
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ClaimServiceBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("250.00");
+
+    private ClaimService claimService;
+    private SplittableRandom random;
+    private BenchmarkApplication app;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkApplication app) {
+        this.app = app;
+        this.claimService = app.bean(ClaimService.class);
+        this.random = new SplittableRandom(app.seed);
+    }
+
+    @Benchmark
+    public ClaimResponseDto createClaim() {
+        String date = BenchmarkApplication.FIRST_DAY.plusDays(random.nextInt(BenchmarkApplication.DAYS)).toString();
+        return claimService.createClaim(app.carId(random.nextInt()), new ClaimCreateRequestDto(date, "Benchmark claim", AMOUNT));
+    }
+}
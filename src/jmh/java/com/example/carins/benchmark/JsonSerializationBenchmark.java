@@ -0,0 +1,105 @@
+package com.example.carins.benchmark;
+
+import com.example.carins.repo.projection.CarHistoryRow;
+import com.example.carins.repo.projection.ClaimHistoryRow;
+import com.example.carins.repo.projection.PolicyHistoryRow;
+import com.example.carins.web.controller.CarController;
+import com.example.carins.web.dto.CarDto;
+import com.example.carins.web.json.FastJsonBody;
+import com.example.carins.web.json.FastJsonWriters;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response bodies of the car list (a page of 100), car history (50 events) and validity endpoints, written with
+ * Jackson's bean serializers from DTOs or with FastJsonWriters from what the services return. Run with -prof gc:
+ * gc.alloc.rate.norm is the bytes allocated per response. No application context is needed.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonSerializationBenchmark {
+
+    @Param({"jackson", "fast"})
+    public String writer;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    // the servlet response stream: discards the bytes and outlives every generator closed on it
+    private final OutputStream out = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+    private List<CarDto> cars;
+    private List<CarHistoryRow> history;
+    private boolean fast;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fast = writer.equals("fast");
+        cars = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            cars.add(new CarDto(id, "VIN" + (100000 + id), "Dacia", "Logan", 2018, id % 10, "Owner " + id % 10, "owner" + id % 10 + "@example.com"));
+        }
+        history = new ArrayList<>();
+        LocalDate day = LocalDate.of(2024, 1, 1);
+        for (long id = 1; id <= 50; id++) {
+            day = day.plusDays(7);
+            history.add(id % 5 == 0
+                    ? new PolicyHistoryRow(id, "Allianz", day, day.plusYears(1))
+                    : new ClaimHistoryRow(id, day, "Broken mirror", new BigDecimal("300.00")));
+        }
+    }
+
+    @Benchmark
+    public void carsPage() throws IOException {
+        if (fast) {
+            write(FastJsonWriters.cars(cars));
+        } else {
+            objectMapper.writeValue(out, cars);
+        }
+    }
+
+    @Benchmark
+    public void carHistory() throws IOException {
+        if (fast) {
+            write(FastJsonWriters.history(history));
+        } else {
+            objectMapper.writeValue(out, history.stream().map(CarHistoryRow::toDto).toList());
+        }
+    }
+
+    @Benchmark
+    public void insuranceValidity() throws IOException {
+        LocalDate date = LocalDate.of(2025, 6, 1);
+        if (fast) {
+            write(FastJsonWriters.validity(42L, date, true));
+        } else {
+            objectMapper.writeValue(out, new CarController.InsuranceValidityResponse(42L, date.toString(), true));
+        }
+    }
+
+    // what FastJsonHttpMessageConverter does with the body
+    private void write(FastJsonBody body) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            body.writeTo(generator);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.carins.benchmark;
+
+import com.example.carins.service.InsurancePolicyService;
+import com.example.carins.service.VersionedPolicy;
+import com.example.carins.web.dto.InsurancePolicyRequestDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrent renewals (one day extensions) spread over hotPolicies policies: with 1 every thread fights over the
+ * same row and most attempts are optimistic retries. Extensions that ran out of retries are counted and printed
+ * after each iteration next to the throughput of the ones that were applied.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Thread)
+public class PolicyRenewalBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Policies {
+
+        @Param({"1", "100"})
+        public int hotPolicies;
+
+        long[] ids;
+        final AtomicLong conflicts = new AtomicLong();
+
+        @Setup(Level.Trial)
+        public void create(BenchmarkApplication app) {
+            InsurancePolicyService policyService = app.bean(InsurancePolicyService.class);
+            ids = new long[hotPolicies];
+            for (int i = 0; i < hotPolicies; i++) {
+                VersionedPolicy policy = policyService.createPolicy(new InsurancePolicyRequestDto(app.carId(i), "Benchmark",
+                        LocalDate.of(2030, 1, 1), LocalDate.of(2030, 12, 31)));
+                ids[i] = policy.policy().id();
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void printConflicts() {
+            System.out.println("\nextensions that ran out of retries: " + conflicts.getAndSet(0));
+        }
+    }
+
+    private InsurancePolicyService policyService;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkApplication app) {
+        this.policyService = app.bean(InsurancePolicyService.class);
+        this.random = new SplittableRandom(app.seed + Thread.currentThread().threadId());
+    }
+
+    @Benchmark
+    public VersionedPolicy extendPolicy(Policies policies) {
+        try {
+            return policyService.extendPolicy(policies.ids[random.nextInt(policies.ids.length)], 1);
+        } catch (OptimisticLockingFailureException ex) {
+            policies.conflicts.incrementAndGet();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.carins.benchmark;
+
+import com.example.carins.model.Car;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The lookups covered by the l2cache profile, with the caches off and on. Requests go to a hot set of cars
+ * (and the first day of each month of one year), like a dashboard polling the same fleet. Every key is requested
+ * once before measuring, so the cached runs start warm; after each iteration the number of SQL statements per
+ * operation is printed next to the throughput.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SecondLevelCacheBenchmark {
+
+    private static final int HOT_CARS = 100;
+    private static final int YEAR = 2025;
+
+    @State(Scope.Benchmark)
+    public static class Application extends BenchmarkApplication {
+
+        @Param({"false", "true"})
+        public boolean l2cache;
+
+        @Override
+        protected SpringApplicationBuilder configure(SpringApplicationBuilder builder) {
+            builder.properties("spring.jpa.properties.hibernate.generate_statistics=true");
+            return l2cache ? builder.profiles("l2cache") : builder;
+        }
+    }
+
+    private InsurancePolicyRepository policyRepository;
+    private CarRepository carRepository;
+    private Statistics statistics;
+    private SplittableRandom random;
+    private BenchmarkApplication app;
+    private long statementsBefore;
+    private long operations;
+
+    @Setup(Level.Trial)
+    public void setUp(Application app) {
+        this.app = app;
+        this.policyRepository = app.bean(InsurancePolicyRepository.class);
+        this.carRepository = app.bean(CarRepository.class);
+        this.statistics = app.bean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        this.random = new SplittableRandom(app.seed);
+        for (int i = 0; i < HOT_CARS; i++) {
+            long carId = app.carId(i);
+            for (int month = 1; month <= 12; month++) {
+                policyRepository.existsActiveOnDate(carId, LocalDate.of(YEAR, month, 1));
+            }
+            carRepository.findByVin(vin(carId));
+            carRepository.findById(carId);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void startCounting() {
+        statementsBefore = statistics.getPrepareStatementCount();
+        operations = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void printStatements() {
+        long statements = statistics.getPrepareStatementCount() - statementsBefore;
+        System.out.printf("%n%.3f SQL statements per operation (%d statements, %d operations)%n",
+                operations == 0 ? 0.0 : (double) statements / operations, statements, operations);
+    }
+
+    @Benchmark
+    public boolean existsActiveOnDate() {
+        operations++;
+        LocalDate date = LocalDate.of(YEAR, 1 + random.nextInt(12), 1);
+        return policyRepository.existsActiveOnDate(hotCar(), date);
+    }
+
+    @Benchmark
+    public Optional<Car> findByVin() {
+        operations++;
+        return carRepository.findByVin(vin(hotCar()));
+    }
+
+    @Benchmark
+    public Optional<Car> findCarById() {
+        operations++;
+        return carRepository.findById(hotCar());
+    }
+
+    // the VIN the SyntheticDataGenerator gives a car
+    private static String vin(long carId) {
+        return String.format("SYN%014d", carId);
+    }
+
+    private long hotCar() {
+        return app.carId(random.nextInt(HOT_CARS));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.carins.benchmark;
+
+import com.example.carins.CarInsuranceApplication;
+import com.example.carins.service.PolicyCoverageIndex;
+import com.example.carins.service.SyntheticDataGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the web application with Tomcat on platform or virtual threads and fires {@code clients} concurrent
+ * history requests per invocation. The "requests" counter is the sustained request rate; compare
+ * -p virtualThreads=false with true. Needs a file descriptor limit above the number of clients.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WebConcurrencyBenchmark {
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param("10000")
+    public int clients;
+
+    @Param("10000")
+    public int cars;
+
+    private ConfigurableApplicationContext context;
+    private ExecutorService clientThreads;
+    private HttpClient http;
+    private List<HttpRequest> requests;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long requests;
+        public long failures;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            requests = 0;
+            failures = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(CarInsuranceApplication.class)
+                .properties("server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "server.tomcat.max-connections=20000",
+                        "server.tomcat.accept-count=2000",
+                        "spring.datasource.hikari.maximum-pool-size=50",
+                        "spring.datasource.url=jdbc:h2:mem:web-benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN")
+                .run();
+        var spec = new SyntheticDataGenerator.Spec(Math.max(cars / 10, 1), cars, 4, 4, 0.05, 42);
+        long firstCarId = context.getBean(SyntheticDataGenerator.class).generate(spec).firstCarId();
+        context.getBean(PolicyCoverageIndex.class).rebuild();
+
+        String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        requests = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            requests.add(HttpRequest.newBuilder(URI.create(base + "/api/cars/" + (firstCarId + i % cars) + "/history")).build());
+        }
+        clientThreads = Executors.newVirtualThreadPerTaskExecutor();
+        http = HttpClient.newBuilder().executor(clientThreads).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        http.close();
+        clientThreads.close();
+        context.close();
+    }
+
+    @Benchmark
+    public void concurrentClients(Counters counters) {
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(clients);
+        for (HttpRequest request : requests) {
+            responses.add(http.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            try {
+                if (response.join().statusCode() == 200) {
+                    counters.requests++;
+                } else {
+                    counters.failures++;
+                }
+            } catch (RuntimeException ex) {
+                counters.failures++;
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.carins.config;
+
+import com.example.carins.service.ReferenceDataCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caffeine caches (size bounded with W-TinyLFU admission, plus expire-after-write) for {@link ReferenceDataCache}.
+ * The caches are created up front so the actuator binds cache.gets/cache.puts/cache.evictions metrics for each.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    @Bean
+    public CacheManager cacheManager(@Value("${carins.cache.cars.spec}") String carsSpec,
+                                     @Value("${carins.cache.car-ids-by-vin.spec}") String carIdsByVinSpec,
+                                     @Value("${carins.cache.owners.spec}") String ownersSpec) {
+        CaffeineCacheManager caches = new CaffeineCacheManager();
+        caches.setAllowNullValues(false);
+        caches.registerCustomCache(ReferenceDataCache.CARS, Caffeine.from(carsSpec).recordStats().build());
+        caches.registerCustomCache(ReferenceDataCache.CAR_IDS_BY_VIN, Caffeine.from(carIdsByVinSpec).recordStats().build());
+        caches.registerCustomCache(ReferenceDataCache.OWNERS, Caffeine.from(ownersSpec).recordStats().build());
+        // puts and evictions made inside a transaction are applied after it commits
+        return new TransactionAwareCacheManagerProxy(caches);
+    }
+}
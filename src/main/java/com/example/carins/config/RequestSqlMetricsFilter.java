@@ -0,0 +1,76 @@
+package com.example.carins.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the SQL statements and JDBC time of each request, tagged like http.server.requests (method and URI
+ * template), and flags requests over the statement budget: they are counted in carins.http.sql.budget.exceeded
+ * and logged with the statement that repeated most, which is where an N+1 shows up.
+ */
+@Component
+public class RequestSqlMetricsFilter extends OncePerRequestFilter {
+    private static final Logger logger = LoggerFactory.getLogger(RequestSqlMetricsFilter.class);
+
+    private final SqlStatementCounter counter;
+    private final MeterRegistry registry;
+    private final int statementBudget;
+
+    public RequestSqlMetricsFilter(SqlStatementCounter counter, MeterRegistry registry,
+                                   @Value("${carins.sql.statement-budget:20}") int statementBudget) {
+        this.counter = counter;
+        this.registry = registry;
+        this.statementBudget = statementBudget;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        counter.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            record(request, counter.stop());
+        }
+    }
+
+    private void record(HttpServletRequest request, SqlStatementCounter.Stats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        Tags tags = Tags.of("method", request.getMethod(), "uri", uri);
+
+        DistributionSummary.builder("carins.http.sql.statements")
+                .description("JDBC statements run while serving a request")
+                .baseUnit("statements")
+                .tags(tags)
+                .register(registry)
+                .record(stats.statements());
+        Timer.builder("carins.http.sql.time")
+                .description("Time spent in JDBC while serving a request")
+                .tags(tags)
+                .register(registry)
+                .record(stats.jdbcNanos(), TimeUnit.NANOSECONDS);
+
+        if (stats.statements() > statementBudget) {
+            registry.counter("carins.http.sql.budget.exceeded", tags).increment();
+            logger.warn("{} {} ran {} SQL statements (budget {}) in {} ms of JDBC time; most repeated ({}x): {}",
+                    request.getMethod(), uri, stats.statements(), statementBudget,
+                    TimeUnit.NANOSECONDS.toMillis(stats.jdbcNanos()), stats.mostRepeatedCount(), stats.mostRepeated());
+        }
+    }
+}
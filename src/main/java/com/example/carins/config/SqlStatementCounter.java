@@ -0,0 +1,68 @@
+package com.example.carins.config;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the JDBC executions made by the current thread between {@link #start()} and {@link #stop()}, and the
+ * time spent in them. A JDBC batch counts once, as it is one round trip. Statements run on threads without a
+ * started count (scheduled jobs, ingestion workers, async response bodies) are not counted.
+ */
+public class SqlStatementCounter implements QueryExecutionListener {
+
+    private static final ThreadLocal<Count> current = new ThreadLocal<>();
+
+    /**
+     * @param mostRepeated the statement executed most often, the usual sign of an N+1 pattern
+     */
+    public record Stats(int statements, long jdbcNanos, String mostRepeated, int mostRepeatedCount) {
+        static final Stats NONE = new Stats(0, 0, null, 0);
+    }
+
+    public void start() {
+        current.set(new Count());
+    }
+
+    public Stats stop() {
+        Count count = current.get();
+        current.remove();
+        return count == null ? Stats.NONE : count.stats();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Count count = current.get();
+        if (count != null) {
+            count.startedNanos = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Count count = current.get();
+        if (count != null) {
+            count.jdbcNanos += System.nanoTime() - count.startedNanos;
+            count.statements++;
+            if (!queryInfoList.isEmpty()) {
+                count.bySql.merge(queryInfoList.get(0).getQuery(), 1, Integer::sum);
+            }
+        }
+    }
+
+    private static final class Count {
+        final Map<String, Integer> bySql = new HashMap<>();
+        int statements;
+        long jdbcNanos;
+        long startedNanos;
+
+        Stats stats() {
+            Map.Entry<String, Integer> top = bySql.entrySet().stream().max(Map.Entry.comparingByValue()).orElse(null);
+            return new Stats(statements, jdbcNanos, top == null ? null : top.getKey(), top == null ? 0 : top.getValue());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.carins.config;
+
+import com.example.carins.service.ClaimAnalyticsIndex;
+import com.example.carins.service.ClaimColumnSnapshot;
+import com.example.carins.service.PolicyCoverageIndex;
+import com.example.carins.service.ReferenceDataCache;
+import com.example.carins.service.ResourceVersions;
+import com.example.carins.service.SyntheticDataGenerator;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+// seeds the database on startup when the "synthetic" profile is active; sizes come from application-synthetic.properties.
+// Runs once every bean is ready but before the web server starts, so no request sees a half-generated dataset
+@Component
+@Profile("synthetic")
+public class SyntheticDataRunner implements SmartInitializingSingleton {
+
+    private final SyntheticDataGenerator generator;
+    private final PolicyCoverageIndex coverageIndex;
+    private final ClaimAnalyticsIndex claimAnalytics;
+    private final ClaimColumnSnapshot claimSnapshot;
+    private final ReferenceDataCache referenceData;
+    private final ResourceVersions versions;
+    private final SyntheticDataGenerator.Spec spec;
+
+    public SyntheticDataRunner(SyntheticDataGenerator generator, PolicyCoverageIndex coverageIndex,
+                               ClaimAnalyticsIndex claimAnalytics, ClaimColumnSnapshot claimSnapshot,
+                               ReferenceDataCache referenceData, ResourceVersions versions,
+                               @Value("${carins.synthetic.owners}") int owners,
+                               @Value("${carins.synthetic.cars}") int cars,
+                               @Value("${carins.synthetic.policies-per-car}") double policiesPerCar,
+                               @Value("${carins.synthetic.claims-per-car}") double claimsPerCar,
+                               @Value("${carins.synthetic.overlap-rate}") double overlapRate,
+                               @Value("${carins.synthetic.seed}") long seed) {
+        this.generator = generator;
+        this.coverageIndex = coverageIndex;
+        this.claimAnalytics = claimAnalytics;
+        this.claimSnapshot = claimSnapshot;
+        this.referenceData = referenceData;
+        this.versions = versions;
+        this.spec = new SyntheticDataGenerator.Spec(owners, cars, policiesPerCar, claimsPerCar, overlapRate, seed);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        generator.generate(spec);
+        coverageIndex.rebuild();
+        claimAnalytics.rebuild();
+        claimSnapshot.reload();
+        referenceData.clear();
+        versions.invalidateAll();
+    }
+}
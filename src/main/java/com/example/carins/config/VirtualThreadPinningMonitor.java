@@ -0,0 +1,77 @@
+package com.example.carins.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streams the JFR jdk.VirtualThreadPinned event in-process while virtual threads are enabled.
+ * Every pinning longer than the threshold is recorded in the jvm.threads.virtual.pinned timer, and the
+ * first pinning seen from each application frame is logged with its stack trace.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadPinningMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+    private static final String APPLICATION_PACKAGE = "com.example.carins.";
+    private static final int MAX_LOGGED_SITES = 100;
+
+    private final Timer pinned;
+    private final Duration threshold;
+    private final Set<String> loggedSites = ConcurrentHashMap.newKeySet();
+    private RecordingStream recording;
+
+    public VirtualThreadPinningMonitor(MeterRegistry registry,
+                                       @Value("${carins.virtual-threads.pinning-threshold:20ms}") Duration threshold) {
+        this.threshold = threshold;
+        this.pinned = Timer.builder("jvm.threads.virtual.pinned")
+                .description("Virtual threads that blocked while pinned to their carrier thread")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        recording = new RecordingStream();
+        recording.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+        recording.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+        recording.startAsync();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.record(event.getDuration());
+        if (event.getStackTrace() == null || loggedSites.size() >= MAX_LOGGED_SITES) {
+            return;
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        String site = frames.stream()
+                .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName())
+                .filter(name -> name.startsWith(APPLICATION_PACKAGE))
+                .findFirst()
+                .orElse(frames.isEmpty() ? "unknown" : frames.get(0).getMethod().getType().getName());
+        if (loggedSites.add(site)) {
+            logger.warn("Virtual thread pinned for {} ms at {}:\n{}", event.getDuration().toMillis(), site, event.getStackTrace());
+        }
+    }
+}
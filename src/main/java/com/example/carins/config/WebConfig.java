@@ -0,0 +1,45 @@
+package com.example.carins.config;
+
+import com.example.carins.web.json.FastJsonHttpMessageConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper cborMapper;
+
+    // the CBOR mapper comes from the same (prototype) builder as the JSON one, so spring.jackson.* settings,
+    // modules and ISO dates apply to both; it is not a bean, which would displace the auto-configured ObjectMapper
+    public WebConfig(ObjectMapper objectMapper, Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        this.objectMapper = objectMapper;
+        this.cborMapper = objectMapperBuilder.factory(new CBORFactory()).build();
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new FastJsonHttpMessageConverter(objectMapper.getFactory()));
+        converters.add(1, new FastJsonHttpMessageConverter(cborMapper.getFactory(), MediaType.APPLICATION_CBOR));
+        // application/cbor on request and response bodies; after the JSON converter, so JSON stays the default
+        converters.removeIf(MappingJackson2CborHttpMessageConverter.class::isInstance);
+        converters.add(new MappingJackson2CborHttpMessageConverter(cborMapper));
+        // a single JSON object is a valid NDJSON document, so errors raised by streaming endpoints can still be rendered
+        for (HttpMessageConverter<?> converter : converters) {
+            if (converter instanceof MappingJackson2HttpMessageConverter jackson) {
+                List<MediaType> mediaTypes = new ArrayList<>(jackson.getSupportedMediaTypes());
+                mediaTypes.add(MediaType.APPLICATION_NDJSON);
+                jackson.setSupportedMediaTypes(mediaTypes);
+            }
+        }
+    }
+}
@@ -3,11 +3,17 @@ package com.example.carins.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "car")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "entity.car")
 public class Car {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled sequence instead of IDENTITY so Hibernate can batch inserts (see CarImportService)
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "car_seq")
+    @SequenceGenerator(name = "car_seq", sequenceName = "car_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank @Size(min = 5, max = 32)
@@ -21,6 +27,9 @@ public class Car {
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
     private Owner owner;
 
+    @Version
+    private Long version;
+
     public Car() {}
     public Car(String vin, String make, String model, int yearOfManufacture, Owner owner) {
         this.vin = vin; this.make = make; this.model = model; this.yearOfManufacture = yearOfManufacture; this.owner = owner;
@@ -37,4 +46,5 @@ public class Car {
     public void setYearOfManufacture(int y) { this.yearOfManufacture = y; }
     public Owner getOwner() { return owner; }
     public void setOwner(Owner owner) { this.owner = owner; }
+    public Long getVersion() { return version; }
 }
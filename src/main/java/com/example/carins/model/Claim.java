@@ -4,15 +4,22 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
+// claims are append-only: inserted, never updated
 @Entity
 @Table(name="claim")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "entity.claim")
 public class Claim {
+    // pooled sequence so bulk ingestion can batch inserts (see IngestionService)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "claim_seq")
+    @SequenceGenerator(name = "claim_seq", sequenceName = "claim_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
@@ -31,6 +38,10 @@ public class Claim {
     @Column(nullable = false)
     private BigDecimal amount;
 
+    // set when the claim was written from an async submission (see ClaimSubmissionService)
+    @Column(length = 36, unique = true, updatable = false)
+    private String submissionId;
+
     public Claim() {
     }
 
@@ -76,4 +87,12 @@ public class Claim {
     public void setAmount(BigDecimal amount) {
         this.amount = amount;
     }
+
+    public String getSubmissionId() {
+        return submissionId;
+    }
+
+    public void setSubmissionId(String submissionId) {
+        this.submissionId = submissionId;
+    }
 }
@@ -0,0 +1,30 @@
+package com.example.carins.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+// high-water mark of a job walking policies in (endDate, id) order
+@Entity
+@Table(name = "expiry_checkpoint")
+public class ExpiryCheckpoint {
+    @Id
+    private String name;
+
+    @Column(nullable = false)
+    private LocalDate lastEndDate;
+
+    @Column(nullable = false)
+    private long lastPolicyId;
+
+    public ExpiryCheckpoint() {}
+    public ExpiryCheckpoint(String name, LocalDate lastEndDate, long lastPolicyId) {
+        this.name = name; this.lastEndDate = lastEndDate; this.lastPolicyId = lastPolicyId;
+    }
+
+    public String getName() { return name; }
+    public LocalDate getLastEndDate() { return lastEndDate; }
+    public void setLastEndDate(LocalDate lastEndDate) { this.lastEndDate = lastEndDate; }
+    public long getLastPolicyId() { return lastPolicyId; }
+    public void setLastPolicyId(long lastPolicyId) { this.lastPolicyId = lastPolicyId; }
+}
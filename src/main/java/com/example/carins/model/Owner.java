@@ -3,9 +3,14 @@ package com.example.carins.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+// read-mostly reference data: a short staleness window on the rare update is acceptable
 @Entity
 @Table(name = "owner")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "entity.owner")
 public class Owner {
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
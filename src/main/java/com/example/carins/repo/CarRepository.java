@@ -1,14 +1,71 @@
 package com.example.carins.repo;
 
 import com.example.carins.model.*;
+import com.example.carins.repo.projection.OwnedCar;
+import com.example.carins.web.dto.CarDto;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CarRepository extends JpaRepository<Car, Long> {
     @EntityGraph(attributePaths = {"owner"})
     List<Car> findAll();
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "query.car-by-vin")})
     Optional<Car> findByVin(String vin);
-}
\ No newline at end of file
+
+    @Query("select c.id from Car c")
+    Stream<Long> streamAllIds();
+
+    @Query("select c.id from Car c where c.vin = :vin")
+    Optional<Long> findIdByVin(@Param("vin") String vin);
+
+    @Query("select c.vin from Car c where c.vin in :vins")
+    List<String> findExistingVins(@Param("vins") Collection<String> vins);
+
+    // what OPTIMISTIC_FORCE_INCREMENT does for one car, for many: a concurrent write that read an older version
+    // fails its commit, and the updated rows stay locked until this transaction ends
+    @Modifying
+    @Query("update Car c set c.version = c.version + 1 where c.id in :carIds")
+    int incrementVersions(@Param("carIds") Collection<Long> carIds);
+
+    // DTO projections: rows go straight into CarDto without managed Car/Owner entities
+    @Query("select new com.example.carins.web.dto.CarDto(c.id, c.vin, c.make, c.model, c.yearOfManufacture, o.id, o.name, o.email) " +
+           "from Car c join c.owner o " +
+           "order by c.id")
+    List<CarDto> findAllCarDtos();
+
+    @Query("select new com.example.carins.web.dto.CarDto(c.id, c.vin, c.make, c.model, c.yearOfManufacture, o.id, o.name, o.email) " +
+           "from Car c join c.owner o " +
+           "where c.id = :id")
+    Optional<CarDto> findCarDtoById(@Param("id") Long id);
+
+    @Query("select new com.example.carins.web.dto.CarDto(c.id, c.vin, c.make, c.model, c.yearOfManufacture, o.id, o.name, o.email) " +
+           "from Car c join c.owner o " +
+           "where c.id > :afterId " +
+           "order by c.id")
+    List<CarDto> findCarDtosAfter(@Param("afterId") long afterId, Limit limit);
+
+    @Query("select new com.example.carins.web.dto.CarDto(c.id, c.vin, c.make, c.model, c.yearOfManufacture, o.id, o.name, o.email) " +
+           "from Car c join c.owner o " +
+           "where c.id in :ids " +
+           "order by c.id")
+    List<CarDto> findCarDtosByIds(@Param("ids") Collection<Long> ids);
+
+    // keyset page of one owner's cars, served by the owner_id index
+    @Query("select new com.example.carins.repo.projection.OwnedCar(c.id, c.vin, c.make, c.model, c.yearOfManufacture) " +
+           "from Car c " +
+           "where c.owner.id = :ownerId and c.id > :afterId " +
+           "order by c.id")
+    List<OwnedCar> findOwnedCarsAfter(@Param("ownerId") Long ownerId, @Param("afterId") long afterId, Limit limit);
+
+    long countByOwnerId(Long ownerId);
+}
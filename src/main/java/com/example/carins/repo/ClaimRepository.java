@@ -1,13 +1,59 @@
 package com.example.carins.repo;
 
 import com.example.carins.model.Claim;
+import com.example.carins.repo.projection.ClaimAmountRow;
+import com.example.carins.repo.projection.ClaimHistoryRow;
+import com.example.carins.repo.projection.ClaimTotal;
+import com.example.carins.repo.projection.SubmittedClaim;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ClaimRepository extends JpaRepository<Claim, Long> {
     List<Claim> findByCarId(Long carId);
 
+    @Query("select new com.example.carins.repo.projection.SubmittedClaim(c.submissionId, c.id) " +
+           "from Claim c " +
+           "where c.submissionId in :submissionIds")
+    List<SubmittedClaim> findBySubmissionIds(@Param("submissionIds") Collection<String> submissionIds);
+
+    // ordered by car so the caller can merge it with the policies of each car
+    @Query("select new com.example.carins.repo.projection.ClaimAmountRow(c.id, c.car.id, car.owner.id, car.make, car.model, c.claimDate, c.amount) " +
+           "from Claim c join c.car car " +
+           "order by c.car.id, c.claimDate")
+    Stream<ClaimAmountRow> streamAmountRows();
+
+    @Query("select new com.example.carins.repo.projection.ClaimAmountRow(c.id, c.car.id, car.owner.id, car.make, car.model, c.claimDate, c.amount) " +
+           "from Claim c join c.car car " +
+           "where c.id in :claimIds " +
+           "order by c.car.id, c.claimDate")
+    List<ClaimAmountRow> findAmountRowsByIds(@Param("claimIds") Collection<Long> claimIds);
+
+    @Query("select new com.example.carins.repo.projection.ClaimTotal(c.car.id, count(c), sum(c.amount)) " +
+           "from Claim c " +
+           "where c.car.id in :carIds " +
+           "group by c.car.id")
+    List<ClaimTotal> findTotalsByCarIds(@Param("carIds") Collection<Long> carIds);
+
+    // keyset on (claimDate, id): rows strictly after (afterDate, afterId), up to and including toDate
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "256"))
+    @Query("select new com.example.carins.repo.projection.ClaimHistoryRow(c.id, c.claimDate, c.description, c.amount) " +
+           "from Claim c " +
+           "where c.car.id = :carId " +
+           "and (c.claimDate > :afterDate or (c.claimDate = :afterDate and c.id > :afterId)) " +
+           "and c.claimDate <= :toDate " +
+           "order by c.claimDate, c.id")
+    Stream<ClaimHistoryRow> streamHistory(@Param("carId") Long carId, @Param("afterDate") LocalDate afterDate,
+                                          @Param("afterId") long afterId, @Param("toDate") LocalDate toDate, Limit limit);
 }
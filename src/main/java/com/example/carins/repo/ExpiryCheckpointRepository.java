@@ -0,0 +1,8 @@
+package com.example.carins.repo;
+
+import com.example.carins.model.ExpiryCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ExpiryCheckpointRepository extends JpaRepository<ExpiryCheckpoint, String> {}
@@ -1,16 +1,28 @@
 package com.example.carins.repo;
 
 import com.example.carins.model.*;
+import com.example.carins.repo.projection.CarPolicy;
+import com.example.carins.repo.projection.ExpiredPolicy;
+import com.example.carins.repo.projection.PolicyHistoryRow;
+import com.example.carins.repo.projection.PolicyInterval;
+import com.example.carins.repo.projection.PolicySpan;
+import com.example.carins.repo.projection.ProviderInterval;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
 public interface InsurancePolicyRepository extends JpaRepository<InsurancePolicy, Long> {
 
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "query.policy-active")})
     @Query("select case when count(p) > 0 then true else false end " +
            "from InsurancePolicy p " +
            "where p.car.id = :carId " +
@@ -19,5 +31,85 @@ public interface InsurancePolicyRepository extends JpaRepository<InsurancePolicy
     boolean existsActiveOnDate(@Param("carId") Long carId, @Param("date") LocalDate date);
 
     List<InsurancePolicy> findByCarId(Long carId);
-    List<InsurancePolicy> findByEndDateAndIdNotIn(LocalDate endDate, Set<Long> ids);
-}
\ No newline at end of file
+
+    @Query("select new com.example.carins.repo.projection.PolicyInterval(p.car.id, p.startDate, p.endDate) " +
+           "from InsurancePolicy p " +
+           "order by p.car.id, p.startDate")
+    Stream<PolicyInterval> streamAllIntervals();
+
+    @Query("select new com.example.carins.repo.projection.PolicyInterval(p.car.id, p.startDate, p.endDate) " +
+           "from InsurancePolicy p " +
+           "where p.car.id = :carId " +
+           "order by p.startDate")
+    List<PolicyInterval> findIntervalsByCarId(@Param("carId") Long carId);
+
+    @Query("select new com.example.carins.repo.projection.PolicyInterval(p.car.id, p.startDate, p.endDate) " +
+           "from InsurancePolicy p " +
+           "where p.car.id in :carIds " +
+           "order by p.car.id, p.startDate")
+    List<PolicyInterval> findIntervalsByCarIds(@Param("carIds") Collection<Long> carIds);
+
+    // the cars' policies that may overlap anything between from and to, for checking a batch of new policies at once
+    @Query("select new com.example.carins.repo.projection.PolicySpan(p.id, p.car.id, p.startDate, p.endDate) " +
+           "from InsurancePolicy p " +
+           "where p.car.id in :carIds " +
+           "and p.startDate <= :to " +
+           "and p.endDate >= :from " +
+           "order by p.car.id, p.startDate, p.id")
+    List<PolicySpan> findSpansByCarIds(@Param("carIds") Collection<Long> carIds, @Param("from") LocalDate from,
+                                       @Param("to") LocalDate to);
+
+    @Query("select new com.example.carins.repo.projection.PolicySpan(p.id, p.car.id, p.startDate, p.endDate) " +
+           "from InsurancePolicy p " +
+           "order by p.car.id, p.startDate, p.id")
+    Stream<PolicySpan> streamAllSpans();
+
+    // range seek on (car_id, start_date) with end_date read from the same index entry
+    @Query("select p.id from InsurancePolicy p " +
+           "where p.car.id = :carId " +
+           "and p.id <> :excludeId " +
+           "and p.startDate <= :endDate " +
+           "and p.endDate >= :startDate " +
+           "order by p.startDate, p.id")
+    List<Long> findOverlappingIds(@Param("carId") Long carId, @Param("excludeId") long excludeId,
+                                  @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate, Limit limit);
+
+    @Query("select new com.example.carins.repo.projection.ProviderInterval(p.car.id, p.startDate, p.endDate, p.provider) " +
+           "from InsurancePolicy p " +
+           "order by p.car.id, p.startDate")
+    Stream<ProviderInterval> streamAllProviderIntervals();
+
+    @Query("select new com.example.carins.repo.projection.ProviderInterval(p.car.id, p.startDate, p.endDate, p.provider) " +
+           "from InsurancePolicy p " +
+           "where p.car.id in :carIds " +
+           "order by p.car.id, p.startDate")
+    List<ProviderInterval> findProviderIntervalsByCarIds(@Param("carIds") Collection<Long> carIds);
+
+    @Query("select new com.example.carins.repo.projection.CarPolicy(p.car.id, p.id, p.provider, p.startDate, p.endDate) " +
+           "from InsurancePolicy p " +
+           "where p.car.id in :carIds " +
+           "and p.startDate <= :date " +
+           "and (p.endDate is null or p.endDate >= :date) " +
+           "order by p.car.id, p.startDate, p.id")
+    List<CarPolicy> findActiveOnDateByCarIds(@Param("carIds") Collection<Long> carIds, @Param("date") LocalDate date);
+
+    // keyset on (startDate, id): rows strictly after (afterDate, afterId), starting up to and including toDate
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "256"))
+    @Query("select new com.example.carins.repo.projection.PolicyHistoryRow(p.id, p.provider, p.startDate, p.endDate) " +
+           "from InsurancePolicy p " +
+           "where p.car.id = :carId " +
+           "and (p.startDate > :afterDate or (p.startDate = :afterDate and p.id > :afterId)) " +
+           "and p.startDate <= :toDate " +
+           "order by p.startDate, p.id")
+    Stream<PolicyHistoryRow> streamHistory(@Param("carId") Long carId, @Param("afterDate") LocalDate afterDate,
+                                           @Param("afterId") long afterId, @Param("toDate") LocalDate toDate, Limit limit);
+
+    // keyset on (endDate, id), served by the end_date index: policies past (afterDate, afterId) that ended by upTo
+    @Query("select new com.example.carins.repo.projection.ExpiredPolicy(p.id, p.car.id, p.endDate) " +
+           "from InsurancePolicy p " +
+           "where (p.endDate > :afterDate or (p.endDate = :afterDate and p.id > :afterId)) " +
+           "and p.endDate <= :upTo " +
+           "order by p.endDate, p.id")
+    List<ExpiredPolicy> findExpiredAfter(@Param("afterDate") LocalDate afterDate, @Param("afterId") long afterId,
+                                         @Param("upTo") LocalDate upTo, Limit limit);
+}
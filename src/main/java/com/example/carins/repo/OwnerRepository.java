@@ -1,14 +1,22 @@
 package com.example.carins.repo;
 
 import com.example.carins.model.*;
+import com.example.carins.web.dto.OwnerDto;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface OwnerRepository extends JpaRepository<Owner, Long> {}
+public interface OwnerRepository extends JpaRepository<Owner, Long> {
+    @Query("select new com.example.carins.web.dto.OwnerDto(o.id, o.name, o.email) from Owner o where o.id = :id")
+    Optional<OwnerDto> findOwnerDtoById(@Param("id") Long id);
+
+    @Query("select o.id from Owner o where o.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+}
 
 
@@ -0,0 +1,43 @@
+package com.example.carins.repo.projection;
+
+import com.example.carins.web.dto.CarHistoryDto;
+import com.example.carins.web.dto.CarHistoryEventType;
+
+import java.time.LocalDate;
+
+// a history event as read from the database, ordered by (date, type, id)
+public interface CarHistoryRow {
+    CarHistoryEventType type();
+    LocalDate date();
+    Long id();
+
+    // writes the description into a caller-owned builder, so a serializer can reuse one across events
+    void appendDescription(StringBuilder out);
+
+    default String description() {
+        StringBuilder out = new StringBuilder(96);
+        appendDescription(out);
+        return out.toString();
+    }
+
+    default CarHistoryDto toDto() {
+        return new CarHistoryDto(type(), description(), date());
+    }
+
+    // same text as LocalDate.toString(), without the intermediate string for four digit years
+    static void appendDate(StringBuilder out, LocalDate date) {
+        int year = date.getYear();
+        if (year < 1000 || year > 9999) {
+            out.append(date);
+            return;
+        }
+        out.append(year).append('-');
+        appendTwoDigits(out, date.getMonthValue());
+        out.append('-');
+        appendTwoDigits(out, date.getDayOfMonth());
+    }
+
+    private static void appendTwoDigits(StringBuilder out, int value) {
+        out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+}
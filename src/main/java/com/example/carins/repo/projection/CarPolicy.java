@@ -0,0 +1,5 @@
+package com.example.carins.repo.projection;
+
+import java.time.LocalDate;
+
+public record CarPolicy(Long carId, Long policyId, String provider, LocalDate startDate, LocalDate endDate) {}
@@ -0,0 +1,6 @@
+package com.example.carins.repo.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record ClaimAmountRow(Long claimId, Long carId, Long ownerId, String make, String model, LocalDate claimDate, BigDecimal amount) {}
@@ -0,0 +1,26 @@
+package com.example.carins.repo.projection;
+
+import com.example.carins.web.dto.CarHistoryEventType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record ClaimHistoryRow(Long id, LocalDate claimDate, String claimDescription, BigDecimal amount) implements CarHistoryRow {
+
+    @Override
+    public CarHistoryEventType type() {
+        return CarHistoryEventType.CLAIM;
+    }
+
+    @Override
+    public LocalDate date() {
+        return claimDate;
+    }
+
+    @Override
+    public void appendDescription(StringBuilder out) {
+        out.append("Claim related to ").append(claimDescription).append(", submitted on");
+        CarHistoryRow.appendDate(out, claimDate);
+        out.append(" for total amount: ").append(amount);
+    }
+}
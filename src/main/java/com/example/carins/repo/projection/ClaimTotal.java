@@ -0,0 +1,5 @@
+package com.example.carins.repo.projection;
+
+import java.math.BigDecimal;
+
+public record ClaimTotal(Long carId, long count, BigDecimal total) {}
@@ -0,0 +1,3 @@
+package com.example.carins.repo.projection;
+
+public record OwnedCar(Long id, String vin, String make, String model, int yearOfManufacture) {}
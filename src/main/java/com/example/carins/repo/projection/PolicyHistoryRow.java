@@ -0,0 +1,26 @@
+package com.example.carins.repo.projection;
+
+import com.example.carins.web.dto.CarHistoryEventType;
+
+import java.time.LocalDate;
+
+public record PolicyHistoryRow(Long id, String provider, LocalDate startDate, LocalDate endDate) implements CarHistoryRow {
+
+    @Override
+    public CarHistoryEventType type() {
+        return CarHistoryEventType.POLICY;
+    }
+
+    @Override
+    public LocalDate date() {
+        return startDate;
+    }
+
+    @Override
+    public void appendDescription(StringBuilder out) {
+        out.append("Policy with ").append(provider).append(", start date: ");
+        CarHistoryRow.appendDate(out, startDate);
+        out.append(", end date: ");
+        CarHistoryRow.appendDate(out, endDate);
+    }
+}
@@ -0,0 +1,5 @@
+package com.example.carins.repo.projection;
+
+import java.time.LocalDate;
+
+public record PolicySpan(Long id, Long carId, LocalDate startDate, LocalDate endDate) {}
@@ -0,0 +1,19 @@
+package com.example.carins.service;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+// republishes expiries as Spring application events for in-process listeners
+@Component
+public class ApplicationEventExpirySink implements PolicyExpirySink {
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ApplicationEventExpirySink(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void policyExpired(PolicyExpiredEvent event) {
+        eventPublisher.publishEvent(event);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.carins.service;
+
+import com.example.carins.web.dto.CarCreateRequestDto;
+import com.example.carins.web.exception.BadRequestException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads car rows from CSV with a header line naming the columns
+ * (vin, make, model, yearOfManufacture, ownerId, in any order). Fields may be double-quoted.
+ * A malformed line rejects the whole upload, like malformed JSON does.
+ */
+final class CarCsvReader {
+
+    private static final List<String> COLUMNS = List.of("vin", "make", "model", "yearOfManufacture", "ownerId");
+
+    private CarCsvReader() {}
+
+    static List<CarCreateRequestDto> read(String csv) {
+        String[] lines = csv.split("\r?\n");
+        if (lines.length == 0 || lines[0].isBlank()) {
+            throw new BadRequestException("CSV upload is empty: a header line is required");
+        }
+
+        List<String> header = splitLine(lines[0], 1);
+        Map<String, Integer> position = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            position.put(header.get(i).trim(), i);
+        }
+        for (String column : COLUMNS) {
+            if (!position.containsKey(column)) {
+                throw new BadRequestException("CSV header is missing column " + column);
+            }
+        }
+
+        List<CarCreateRequestDto> rows = new ArrayList<>(lines.length - 1);
+        for (int line = 1; line < lines.length; line++) {
+            if (lines[line].isBlank()) {
+                continue;
+            }
+            List<String> fields = splitLine(lines[line], line + 1);
+            if (fields.size() != header.size()) {
+                throw new BadRequestException("CSV line " + (line + 1) + " has " + fields.size() + " fields, expected " + header.size());
+            }
+            try {
+                rows.add(new CarCreateRequestDto(
+                        emptyToNull(fields.get(position.get("vin"))),
+                        emptyToNull(fields.get(position.get("make"))),
+                        emptyToNull(fields.get(position.get("model"))),
+                        Integer.parseInt(fields.get(position.get("yearOfManufacture")).trim()),
+                        Long.valueOf(fields.get(position.get("ownerId")).trim())));
+            } catch (NumberFormatException ex) {
+                throw new BadRequestException("CSV line " + (line + 1) + ": yearOfManufacture and ownerId must be numbers");
+            }
+        }
+        return rows;
+    }
+
+    private static List<String> splitLine(String line, int lineNumber) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new BadRequestException("CSV line " + lineNumber + " has an unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String emptyToNull(String value) {
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+}
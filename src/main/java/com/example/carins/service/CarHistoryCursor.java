@@ -0,0 +1,32 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.projection.CarHistoryRow;
+import com.example.carins.web.dto.CarHistoryEventType;
+import com.example.carins.web.exception.BadRequestException;
+
+import java.time.LocalDate;
+
+// position in a car's history, rendered as "date:TYPE:id" (e.g. 2024-05-01:CLAIM:17)
+public record CarHistoryCursor(LocalDate date, CarHistoryEventType type, long id) {
+
+    public static CarHistoryCursor of(CarHistoryRow row) {
+        return new CarHistoryCursor(row.date(), row.type(), row.id());
+    }
+
+    public static CarHistoryCursor parse(String cursor) {
+        String[] parts = cursor.split(":");
+        try {
+            if (parts.length != 3) {
+                throw new IllegalArgumentException();
+            }
+            return new CarHistoryCursor(LocalDate.parse(parts[0]), CarHistoryEventType.valueOf(parts[1]), Long.parseLong(parts[2]));
+        } catch (RuntimeException ex) {
+            throw new BadRequestException("Invalid history cursor provided (" + cursor + ")");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return date + ":" + type + ":" + id;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.carins.service;
+
+import com.example.carins.web.dto.CarHistoryDto;
+
+import java.util.List;
+
+// nextCursor is null once the end of the history has been reached
+public record CarHistoryPage(List<CarHistoryDto> events, CarHistoryCursor nextCursor) {}
@@ -0,0 +1,11 @@
+package com.example.carins.service;
+
+import java.time.LocalDate;
+
+// all fields are optional: from/to bound the event date (inclusive), limit and cursor page through the result
+public record CarHistoryQuery(LocalDate from, LocalDate to, Integer limit, CarHistoryCursor cursor) {
+
+    public static CarHistoryQuery all() {
+        return new CarHistoryQuery(null, null, null, null);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.projection.CarHistoryRow;
+
+import java.util.List;
+
+// a history page as read, for serializers that write the rows directly; nextCursor as in CarHistoryPage
+public record CarHistoryRowPage(List<CarHistoryRow> rows, CarHistoryCursor nextCursor) {}
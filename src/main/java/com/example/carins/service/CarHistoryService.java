@@ -0,0 +1,135 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.ClaimRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.projection.CarHistoryRow;
+import com.example.carins.repo.projection.ClaimHistoryRow;
+import com.example.carins.repo.projection.PolicyHistoryRow;
+import com.example.carins.web.dto.CarHistoryDto;
+import com.example.carins.web.dto.CarHistoryEventType;
+import com.example.carins.web.exception.BadRequestException;
+import com.example.carins.web.exception.InvalidDateException;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Reads a car's claims and policies as projections already sorted by the database
+ * and merges them into one chronological history, without loading entities or sorting in memory.
+ */
+@Service
+@Timed("carins.service")
+public class CarHistoryService {
+
+    private static final LocalDate MIN_DATE = LocalDate.of(1, 1, 1);
+    private static final LocalDate MAX_DATE = LocalDate.of(9999, 12, 31);
+
+    // same date: claims before policies, then by id
+    private static final Comparator<CarHistoryRow> HISTORY_ORDER = Comparator.comparing(CarHistoryRow::date)
+            .thenComparing(CarHistoryRow::type)
+            .thenComparing(CarHistoryRow::id);
+
+    private record Bound(LocalDate date, long id) {}
+
+    private final ClaimRepository claimRepository;
+    private final InsurancePolicyRepository policyRepository;
+    private final PolicyCoverageIndex coverageIndex;
+    private final int maxPageSize;
+
+    public CarHistoryService(ClaimRepository claimRepository, InsurancePolicyRepository policyRepository, PolicyCoverageIndex coverageIndex,
+                             @Value("${carins.history.page.max-limit:1000}") int maxPageSize) {
+        this.claimRepository = claimRepository;
+        this.policyRepository = policyRepository;
+        this.coverageIndex = coverageIndex;
+        this.maxPageSize = maxPageSize;
+    }
+
+    // checks everything that would otherwise fail half-way through a streamed response
+    public void validate(Long carId, CarHistoryQuery query) {
+        coverageIndex.requireCar(carId);
+        if (query.limit() != null && (query.limit() < 1 || query.limit() > maxPageSize)) {
+            throw new BadRequestException("Invalid limit (" + query.limit() + "): must be between 1 and " + maxPageSize);
+        }
+        if (query.from() != null && query.to() != null && query.from().isAfter(query.to())) {
+            throw new InvalidDateException("From date cannot be after to date. ",
+                    "Provided from date (" + query.from() + ") is after provided to date (" + query.to() + ")");
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public CarHistoryPage getHistory(Long carId, CarHistoryQuery query) {
+        validate(carId, query);
+
+        List<CarHistoryDto> events = new ArrayList<>();
+        CarHistoryRow[] last = new CarHistoryRow[1];
+        forEachRow(carId, query, row -> {
+            events.add(row.toDto());
+            last[0] = row;
+        });
+
+        boolean pageFull = query.limit() != null && events.size() == query.limit();
+        return new CarHistoryPage(events, pageFull ? CarHistoryCursor.of(last[0]) : null);
+    }
+
+    @Transactional(readOnly = true)
+    public CarHistoryRowPage getHistoryRows(Long carId, CarHistoryQuery query) {
+        validate(carId, query);
+
+        List<CarHistoryRow> rows = new ArrayList<>();
+        forEachRow(carId, query, rows::add);
+
+        boolean pageFull = query.limit() != null && rows.size() == query.limit();
+        return new CarHistoryRowPage(rows, pageFull ? CarHistoryCursor.of(rows.get(rows.size() - 1)) : null);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamHistory(Long carId, CarHistoryQuery query, Consumer<CarHistoryDto> sink) {
+        validate(carId, query);
+        forEachRow(carId, query, row -> sink.accept(row.toDto()));
+    }
+
+    private void forEachRow(Long carId, CarHistoryQuery query, Consumer<CarHistoryRow> sink) {
+        int limit = query.limit() != null ? query.limit() : Integer.MAX_VALUE;
+        Limit perSource = query.limit() != null ? Limit.of(limit) : Limit.unlimited();
+        LocalDate to = query.to() != null ? query.to() : MAX_DATE;
+        Bound claimsAfter = lowerBound(query, CarHistoryEventType.CLAIM);
+        Bound policiesAfter = lowerBound(query, CarHistoryEventType.POLICY);
+
+        try (Stream<ClaimHistoryRow> claims = claimRepository.streamHistory(carId, claimsAfter.date(), claimsAfter.id(), to, perSource);
+             Stream<PolicyHistoryRow> policies = policyRepository.streamHistory(carId, policiesAfter.date(), policiesAfter.id(), to, perSource)) {
+            var merged = new SortedMergeIterator<CarHistoryRow>(List.of(claims.iterator(), policies.iterator()), HISTORY_ORDER);
+            for (int emitted = 0; emitted < limit && merged.hasNext(); emitted++) {
+                sink.accept(merged.next());
+            }
+        }
+    }
+
+    // exclusive (date, id) keyset bound for one event type, combining the from date and the cursor
+    private static Bound lowerBound(CarHistoryQuery query, CarHistoryEventType type) {
+        Bound bound = new Bound(query.from() != null ? query.from() : MIN_DATE, -1);
+        CarHistoryCursor cursor = query.cursor();
+        if (cursor == null) {
+            return bound;
+        }
+        long afterId;
+        if (cursor.type() == type) {
+            afterId = cursor.id();
+        } else {
+            // events of a type ordered before the cursor's type are already behind it on the cursor date
+            afterId = type.compareTo(cursor.type()) < 0 ? Long.MAX_VALUE : -1;
+        }
+        Bound cursorBound = new Bound(cursor.date(), afterId);
+        boolean cursorIsLater = cursorBound.date().isAfter(bound.date())
+                || (cursorBound.date().equals(bound.date()) && cursorBound.id() > bound.id());
+        return cursorIsLater ? cursorBound : bound;
+    }
+}
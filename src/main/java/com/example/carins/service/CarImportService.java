@@ -0,0 +1,162 @@
+package com.example.carins.service;
+
+import com.example.carins.model.Car;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.OwnerRepository;
+import com.example.carins.web.dto.CarCreateRequestDto;
+import com.example.carins.web.dto.CarImportResultDto;
+import com.example.carins.web.exception.BadRequestException;
+import com.example.carins.web.exception.InvalidCarVinException;
+import com.example.carins.web.exception.OwnerNotFoundException;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Imports many cars in one transaction. Owner existence and VIN uniqueness are checked with
+ * set-based lookups up front, then accepted rows are persisted in JDBC batches
+ * (the car id comes from a pooled sequence, so Hibernate can batch the inserts).
+ */
+@Service
+public class CarImportService {
+
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+
+    private final CarRepository carRepository;
+    private final OwnerRepository ownerRepository;
+    private final PolicyCoverageIndex coverageIndex;
+    private final ReferenceDataCache referenceData;
+    private final ResourceVersions versions;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final int maxRows;
+    private final int batchSize;
+
+    public CarImportService(CarRepository carRepository, OwnerRepository ownerRepository, PolicyCoverageIndex coverageIndex,
+                            ReferenceDataCache referenceData, ResourceVersions versions, EntityManager entityManager, Validator validator,
+                            @Value("${carins.cars.import.max-rows:50000}") int maxRows,
+                            @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.carRepository = carRepository;
+        this.ownerRepository = ownerRepository;
+        this.coverageIndex = coverageIndex;
+        this.referenceData = referenceData;
+        this.versions = versions;
+        this.entityManager = entityManager;
+        this.validator = validator;
+        this.maxRows = maxRows;
+        this.batchSize = batchSize;
+    }
+
+    @Transactional
+    public List<CarImportResultDto> importCsv(String csv) {
+        return importCars(CarCsvReader.read(csv));
+    }
+
+    // results are returned in row order; rows are numbered from 1
+    @Transactional
+    public List<CarImportResultDto> importCars(List<CarCreateRequestDto> rows) {
+        if (rows.isEmpty()) {
+            throw new BadRequestException("Import contains no cars");
+        }
+        if (rows.size() > maxRows) {
+            throw new BadRequestException("Import too large: " + rows.size() + " cars provided, at most " + maxRows + " are allowed");
+        }
+
+        CarImportResultDto[] results = new CarImportResultDto[rows.size()];
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            String violation = firstViolation(rows.get(i));
+            if (violation != null) {
+                results[i] = badRequest(i, rows.get(i), violation);
+            } else {
+                candidates.add(i);
+            }
+        }
+
+        Set<Long> knownOwners = existing(candidates.stream().map(i -> rows.get(i).ownerId()).toList(), ownerRepository::findExistingIds);
+        Set<String> takenVins = existing(candidates.stream().map(i -> rows.get(i).vin()).toList(), carRepository::findExistingVins);
+
+        List<Integer> accepted = new ArrayList<>();
+        Set<String> batchVins = new HashSet<>();
+        for (int i : candidates) {
+            CarCreateRequestDto row = rows.get(i);
+            if (!knownOwners.contains(row.ownerId())) {
+                results[i] = new CarImportResultDto(i + 1, row.vin(), null, HttpStatus.NOT_FOUND.value(),
+                        HttpStatus.NOT_FOUND.getReasonPhrase(), new OwnerNotFoundException(row.ownerId()).getMessage());
+            } else if (takenVins.contains(row.vin())) {
+                results[i] = badRequest(i, row, new InvalidCarVinException(row.vin()).getMessage());
+            } else if (!batchVins.add(row.vin())) {
+                results[i] = badRequest(i, row, "Invalid VIN provided (" + row.vin() + "): VIN appears more than once in this import");
+            } else {
+                accepted.add(i);
+            }
+        }
+
+        List<Long> createdIds = new ArrayList<>(accepted.size());
+        for (int n = 0; n < accepted.size(); n++) {
+            int i = accepted.get(n);
+            CarCreateRequestDto row = rows.get(i);
+            Car car = new Car(row.vin(), row.make(), row.model(), row.yearOfManufacture(), ownerRepository.getReferenceById(row.ownerId()));
+            entityManager.persist(car);
+            createdIds.add(car.getId());
+            results[i] = new CarImportResultDto(i + 1, row.vin(), car.getId(), HttpStatus.CREATED.value(), null, null);
+            if ((n + 1) % batchSize == 0) {
+                // send the batch and keep the persistence context small
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        coverageIndex.registerCarsAfterCommit(createdIds);
+        if (!createdIds.isEmpty()) {
+            versions.carsAddedAfterCommit();
+        }
+        referenceData.evictCarsByVin(accepted.stream().map(i -> rows.get(i).vin()).toList());
+        return List.of(results);
+    }
+
+    private String firstViolation(CarCreateRequestDto row) {
+        if (row == null) {
+            return "Car row is empty";
+        }
+        Set<ConstraintViolation<CarCreateRequestDto>> requestViolations = validator.validate(row);
+        if (!requestViolations.isEmpty()) {
+            ConstraintViolation<CarCreateRequestDto> violation = requestViolations.iterator().next();
+            return violation.getPropertyPath() + ": " + violation.getMessage();
+        }
+        // entity constraints (e.g. VIN length) would otherwise fail the whole batch at flush time
+        Set<ConstraintViolation<Car>> entityViolations = validator.validate(new Car(row.vin(), row.make(), row.model(), row.yearOfManufacture(), null));
+        if (!entityViolations.isEmpty()) {
+            ConstraintViolation<Car> violation = entityViolations.iterator().next();
+            return violation.getPropertyPath() + ": " + violation.getMessage();
+        }
+        return null;
+    }
+
+    private static CarImportResultDto badRequest(int i, CarCreateRequestDto row, String message) {
+        return new CarImportResultDto(i + 1, row != null ? row.vin() : null, null, HttpStatus.BAD_REQUEST.value(),
+                HttpStatus.BAD_REQUEST.getReasonPhrase(), message);
+    }
+
+    private static <T> Set<T> existing(List<T> keys, Function<Collection<T>, List<T>> lookup) {
+        List<T> distinct = keys.stream().distinct().toList();
+        Set<T> found = new HashSet<>();
+        for (int from = 0; from < distinct.size(); from += LOOKUP_CHUNK_SIZE) {
+            found.addAll(lookup.apply(distinct.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, distinct.size()))));
+        }
+        return found;
+    }
+}
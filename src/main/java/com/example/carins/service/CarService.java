@@ -1,77 +1,164 @@
 package com.example.carins.service;
 
 import com.example.carins.model.Car;
-import com.example.carins.model.Owner;
 import com.example.carins.repo.CarRepository;
-import com.example.carins.repo.ClaimRepository;
-import com.example.carins.repo.InsurancePolicyRepository;
 import com.example.carins.repo.OwnerRepository;
 import com.example.carins.web.dto.*;
+import com.example.carins.web.exception.BadRequestException;
 import com.example.carins.web.exception.CarNotFoundException;
 import com.example.carins.web.exception.InvalidCarVinException;
+import com.example.carins.web.exception.InvalidDateException;
 import com.example.carins.web.exception.OwnerNotFoundException;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 @Service
+@Timed("carins.service")
 public class CarService {
 
     private final CarRepository carRepository;
-    private final InsurancePolicyRepository policyRepository;
-    private final ClaimRepository claimRepository;
     private final OwnerRepository ownerRepository;
-
-    public CarService(CarRepository carRepository, InsurancePolicyRepository policyRepository, ClaimRepository claimRepository, OwnerRepository ownerRepository) {
+    private final PolicyCoverageIndex coverageIndex;
+    private final CarHistoryService historyService;
+    private final ReferenceDataCache referenceData;
+    private final ResourceVersions versions;
+    private final int maxValidityBatchSize;
+    private final int maxCarsPageSize;
+
+    public CarService(CarRepository carRepository, OwnerRepository ownerRepository, PolicyCoverageIndex coverageIndex, CarHistoryService historyService,
+                      ReferenceDataCache referenceData, ResourceVersions versions,
+                      @Value("${carins.validity.batch.max-size:100000}") int maxValidityBatchSize,
+                      @Value("${carins.cars.page.max-limit:1000}") int maxCarsPageSize) {
         this.carRepository = carRepository;
-        this.policyRepository = policyRepository;
-        this.claimRepository = claimRepository;
         this.ownerRepository = ownerRepository;
+        this.coverageIndex = coverageIndex;
+        this.historyService = historyService;
+        this.referenceData = referenceData;
+        this.versions = versions;
+        this.maxValidityBatchSize = maxValidityBatchSize;
+        this.maxCarsPageSize = maxCarsPageSize;
+    }
+
+    public List<CarDto> listCars() {
+        return carRepository.findAllCarDtos();
     }
 
-    public List<Car> listCars() {
-        return carRepository.findAll();
+    // keyset page: cars with id greater than afterId, in id order
+    public List<CarDto> listCars(long afterId, int limit) {
+        if (limit < 1 || limit > maxCarsPageSize) {
+            throw new BadRequestException("Invalid limit (" + limit + "): must be between 1 and " + maxCarsPageSize);
+        }
+        return carRepository.findCarDtosAfter(afterId, Limit.of(limit));
+    }
+
+    // walks the whole fleet page by page, so neither memory nor the open transaction grows with fleet size
+    public void forEachCar(long afterId, Consumer<CarDto> sink) {
+        long cursor = afterId;
+        List<CarDto> page;
+        do {
+            page = carRepository.findCarDtosAfter(cursor, Limit.of(maxCarsPageSize));
+            page.forEach(sink);
+            if (!page.isEmpty()) {
+                cursor = page.get(page.size() - 1).id();
+            }
+        } while (page.size() == maxCarsPageSize);
     }
 
     public boolean isInsuranceValid(Long carId, LocalDate date) {
         if (carId == null || date == null) return false;
 
-        Car car = carRepository.findById(carId)
-                .orElseThrow(() -> new CarNotFoundException(carId));
-
-        return policyRepository.existsActiveOnDate(carId, date);
+        // answered from the in-memory coverage index, throws CarNotFoundException for unknown cars
+        return coverageIndex.isCovered(carId, date);
     }
 
-    public List<CarHistoryDto> getCarHistory(Long carId){
-        Car car = carRepository.findById(carId)
-                .orElseThrow(() -> new CarNotFoundException(carId));
+    public LocalDate parseValidityDate(String date) {
+        LocalDate reqDate;
+
+        try {
+            reqDate = LocalDate.parse(date);
+        } catch (Exception ex) {
+            throw new InvalidDateException(date);
+        }
 
-        var claims = claimRepository.findByCarId(car.getId()).stream()
-                .map(c -> new CarHistoryDto(CarHistoryEventType.CLAIM, "Claim related to "+ c.getDescription() + ", submitted on" + c.getClaimDate()+ " for total amount: " + c.getAmount(), c.getClaimDate()));
+        if (reqDate.getYear() < 1900 || reqDate.getYear() > 2100) {
+            throw new InvalidDateException("Impossible date provided: ", date);
+        }
+        return reqDate;
+    }
 
-        var policies = policyRepository.findByCarId(car.getId()).stream()
-                .map(p -> new CarHistoryDto(CarHistoryEventType.POLICY, "Policy with " + p.getProvider() + ", start date: " + p.getStartDate()+ ", end date: "+ p.getEndDate(), p.getStartDate()));
+    /**
+     * Resolves a batch of validity checks, returning the results lazily in request order.
+     * Coverage is looked up once per distinct car; rows that would fail on the single-check
+     * endpoint are reported with the same status and message instead of failing the batch.
+     */
+    public Stream<InsuranceValidityResultDto> checkInsuranceValidity(List<InsuranceValidityCheckDto> checks) {
+        if (checks.size() > maxValidityBatchSize) {
+            throw new BadRequestException("Batch too large: " + checks.size() + " checks provided, at most " + maxValidityBatchSize + " are allowed");
+        }
+
+        Map<Long, PolicyCoverageIndex.Coverage> coverageByCar = new HashMap<>();
+        for (InsuranceValidityCheckDto check : checks) {
+            if (check != null && check.carId() != null && !coverageByCar.containsKey(check.carId())) {
+                coverageByCar.put(check.carId(), coverageIndex.coverageOf(check.carId()));
+            }
+        }
+
+        return checks.stream().map(check -> checkOne(check, coverageByCar));
+    }
 
-        return Stream.concat(claims, policies)
-                .sorted(Comparator.comparing((CarHistoryDto::date))).toList();
+    private InsuranceValidityResultDto checkOne(InsuranceValidityCheckDto check, Map<Long, PolicyCoverageIndex.Coverage> coverageByCar) {
+        if (check == null || check.carId() == null || check.date() == null) {
+            return InsuranceValidityResultDto.failed(check == null ? null : check.carId(), check == null ? null : check.date(),
+                    HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.getReasonPhrase(), "carId and date are required");
+        }
+        try {
+            LocalDate date = parseValidityDate(check.date());
+            PolicyCoverageIndex.Coverage coverage = coverageByCar.get(check.carId());
+            if (coverage == null) {
+                throw new CarNotFoundException(check.carId());
+            }
+            return InsuranceValidityResultDto.ok(check.carId(), date.toString(), coverage.covers(date));
+        } catch (InvalidDateException ex) {
+            return InsuranceValidityResultDto.failed(check.carId(), check.date(),
+                    HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.getReasonPhrase(), ex.getMessage());
+        } catch (CarNotFoundException ex) {
+            return InsuranceValidityResultDto.failed(check.carId(), check.date(),
+                    HttpStatus.NOT_FOUND.value(), HttpStatus.NOT_FOUND.getReasonPhrase(), ex.getMessage());
+        }
+    }
 
+    public List<CarHistoryDto> getCarHistory(Long carId){
+        return historyService.getHistory(carId, CarHistoryQuery.all()).events();
     }
 
     @Transactional
     public CarDto createCar(CarCreateRequestDto car) {
-        Owner owner = ownerRepository.findById(car.ownerId())
-                .orElseThrow(() -> new OwnerNotFoundException(car.ownerId()));
+        OwnerDto owner = referenceData.findOwner(car.ownerId());
+        if (owner == null) {
+            throw new OwnerNotFoundException(car.ownerId());
+        }
 
-        carRepository.findByVin(car.vin()).ifPresent(c -> {
-            throw new InvalidCarVinException(car.vin());});
+        if (referenceData.findCarIdByVin(car.vin()) != null) {
+            throw new InvalidCarVinException(car.vin());
+        }
 
-        Car newCar = new Car(car.vin(),car.make(),car.model(),car.yearOfManufacture(),owner);
+        Car newCar = new Car(car.vin(),car.make(),car.model(),car.yearOfManufacture(),ownerRepository.getReferenceById(owner.id()));
 
         newCar = carRepository.save(newCar); // id auto-generated
+        coverageIndex.registerCarAfterCommit(newCar.getId());
+        versions.carsAddedAfterCommit();
+        referenceData.evictCar(newCar.getId(), newCar.getVin());
 
         return new CarDto(
                 newCar.getId(),
@@ -79,8 +166,8 @@ public class CarService {
                 newCar.getMake(),
                 newCar.getModel(),
                 newCar.getYearOfManufacture(),
-                newCar.getOwner().getId(),
-                newCar.getOwner().getName(),
-                newCar.getOwner().getEmail());
+                owner.id(),
+                owner.name(),
+                owner.email());
     }
 }
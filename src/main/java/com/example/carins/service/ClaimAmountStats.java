@@ -0,0 +1,125 @@
+package com.example.carins.service;
+
+import com.example.carins.web.dto.ClaimStatsDto;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * Count, total and distribution of a group of claim amounts, in cents. The distribution is a sparse histogram
+ * of logarithmic buckets 2% wide, so percentiles are within 1% of the exact value while a cell only holds
+ * the buckets it has seen. Cells are merged to answer a query over several groups or months.
+ */
+final class ClaimAmountStats {
+    private static final double BASE = 1.02;
+    private static final double LOG_BASE = Math.log(BASE);
+
+    private long count;
+    private long totalCents;
+    private long minCents = Long.MAX_VALUE;
+    private long maxCents = Long.MIN_VALUE;
+    // bucket indexes in ascending order, with the number of amounts in each
+    private int[] buckets = new int[2];
+    private long[] counts = new long[2];
+    private int size;
+
+    static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    synchronized void add(long cents) {
+        count++;
+        totalCents += cents;
+        minCents = Math.min(minCents, cents);
+        maxCents = Math.max(maxCents, cents);
+        int bucket = bucket(cents);
+        int i = Arrays.binarySearch(buckets, 0, size, bucket);
+        if (i >= 0) {
+            counts[i]++;
+            return;
+        }
+        i = -i - 1;
+        if (size == buckets.length) {
+            buckets = Arrays.copyOf(buckets, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+        }
+        System.arraycopy(buckets, i, buckets, i + 1, size - i);
+        System.arraycopy(counts, i, counts, i + 1, size - i);
+        buckets[i] = bucket;
+        counts[i] = 1;
+        size++;
+    }
+
+    // other must not be shared (e.g. a copy), so only this cell is locked
+    synchronized void merge(ClaimAmountStats other) {
+        if (other.count == 0) {
+            return;
+        }
+        count += other.count;
+        totalCents += other.totalCents;
+        minCents = Math.min(minCents, other.minCents);
+        maxCents = Math.max(maxCents, other.maxCents);
+        int[] mergedBuckets = new int[size + other.size];
+        long[] mergedCounts = new long[size + other.size];
+        int i = 0, j = 0, n = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && buckets[i] < other.buckets[j])) {
+                mergedBuckets[n] = buckets[i];
+                mergedCounts[n++] = counts[i++];
+            } else if (i == size || other.buckets[j] < buckets[i]) {
+                mergedBuckets[n] = other.buckets[j];
+                mergedCounts[n++] = other.counts[j++];
+            } else {
+                mergedBuckets[n] = buckets[i];
+                mergedCounts[n++] = counts[i++] + other.counts[j++];
+            }
+        }
+        buckets = mergedBuckets;
+        counts = mergedCounts;
+        size = n;
+    }
+
+    synchronized ClaimAmountStats copy() {
+        ClaimAmountStats copy = new ClaimAmountStats();
+        copy.count = count;
+        copy.totalCents = totalCents;
+        copy.minCents = minCents;
+        copy.maxCents = maxCents;
+        copy.buckets = Arrays.copyOf(buckets, Math.max(size, 2));
+        copy.counts = Arrays.copyOf(counts, Math.max(size, 2));
+        copy.size = size;
+        return copy;
+    }
+
+    synchronized long totalCents() {
+        return totalCents;
+    }
+
+    synchronized ClaimStatsDto toDto(String key, String period) {
+        BigDecimal average = count == 0 ? null
+                : BigDecimal.valueOf(totalCents).divide(BigDecimal.valueOf(count), 0, RoundingMode.HALF_UP).movePointLeft(2);
+        return new ClaimStatsDto(key, period, count, BigDecimal.valueOf(totalCents, 2), average,
+                percentile(0.50), percentile(0.90), percentile(0.99));
+    }
+
+    // nearest rank; the value reported for a bucket is its geometric middle, kept within the observed min and max
+    private BigDecimal percentile(double quantile) {
+        if (count == 0) {
+            return null;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        int i = 0;
+        while (seen + counts[i] < rank) {
+            seen += counts[i++];
+        }
+        long cents = Math.round(Math.pow(BASE, buckets[i] - 0.5));
+        return BigDecimal.valueOf(Math.min(maxCents, Math.max(minCents, cents)), 2);
+    }
+
+    // bucket i holds amounts in (BASE^(i-1), BASE^i]
+    private static int bucket(long cents) {
+        return cents <= 1 ? 0 : (int) Math.ceil(Math.log(cents) / LOG_BASE);
+    }
+}
@@ -0,0 +1,305 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.ClaimRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.projection.ClaimAmountRow;
+import com.example.carins.repo.projection.ProviderInterval;
+import com.example.carins.web.dto.ClaimStatsDto;
+import com.example.carins.web.exception.BadRequestException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Claim totals, averages and percentiles kept in memory, so analytics never scan the claim table.
+ * Built once from the database, then every claim written through the application is added after its
+ * transaction commits. Cars and owners are kept as lifetime totals; the low-cardinality groupings
+ * (make/model, provider and all claims) keep one cell per month, so they can be filtered by month range
+ * and bucketed by month or year.
+ * <p>
+ * A claim counts under the owner of its car and the provider of the policy active on the claim date when
+ * it is recorded (the latest starting one if policies overlap, "(none)" if there is none); policies added
+ * later for past dates are taken into account on the next rebuild. Claims recorded while a rebuild runs are
+ * kept aside and added to the rebuilt aggregates unless the rebuild read them itself.
+ */
+@Component
+public class ClaimAnalyticsIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ClaimAnalyticsIndex.class);
+    private static final int RECORD_CHUNK_SIZE = 1000;
+    private static final int MAX_LIMIT = 10_000;
+    static final String ALL_CLAIMS = "all";
+    static final String NONE = "(none)";
+
+    private final ClaimRepository claimRepository;
+    private final InsurancePolicyRepository policyRepository;
+    private final TransactionTemplate readOnlyTx;
+    private final Object recordLock = new Object();
+    private volatile Aggregates aggregates = new Aggregates();
+    // claims recorded while a rebuild runs; the rebuild adds the ones it did not read itself
+    private List<RecordedClaim> recordedDuringRebuild;
+
+    public ClaimAnalyticsIndex(ClaimRepository claimRepository, InsurancePolicyRepository policyRepository,
+                               PlatformTransactionManager transactionManager) {
+        this.claimRepository = claimRepository;
+        this.policyRepository = policyRepository;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        long startNanos = System.nanoTime();
+        synchronized (recordLock) {
+            recordedDuringRebuild = new ArrayList<>();
+        }
+        Aggregates rebuilt = new Aggregates();
+        ClaimIds read = new ClaimIds();
+        try {
+            readOnlyTx.executeWithoutResult(status -> {
+                try (var rows = claimRepository.streamAmountRows(); var intervals = policyRepository.streamAllProviderIntervals()) {
+                    ProviderLookup providers = new ProviderLookup(intervals.iterator());
+                    for (Iterator<ClaimAmountRow> it = rows.iterator(); it.hasNext(); ) {
+                        ClaimAmountRow row = it.next();
+                        read.add(row.claimId());
+                        rebuilt.add(row, providers.activeOn(row.carId(), row.claimDate()));
+                    }
+                }
+            });
+        } catch (RuntimeException ex) {
+            synchronized (recordLock) {
+                recordedDuringRebuild = null;
+            }
+            throw ex;
+        }
+        read.sort();
+        synchronized (recordLock) {
+            for (RecordedClaim claim : recordedDuringRebuild) {
+                if (!read.contains(claim.row().claimId())) {
+                    rebuilt.add(claim.row(), claim.provider());
+                }
+            }
+            recordedDuringRebuild = null;
+            aggregates = rebuilt;
+        }
+        logger.info("Claim analytics built from {} claims in {} ms", read.size, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    // the claims must already be flushed; they are looked up now and counted once the transaction commits
+    public void recordAfterCommit(Collection<Long> claimIds) {
+        if (claimIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(claimIds);
+        List<RecordedClaim> recorded = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += RECORD_CHUNK_SIZE) {
+            List<ClaimAmountRow> rows = claimRepository.findAmountRowsByIds(ids.subList(from, Math.min(from + RECORD_CHUNK_SIZE, ids.size())));
+            List<Long> carIds = rows.stream().map(ClaimAmountRow::carId).distinct().toList();
+            ProviderLookup providers = new ProviderLookup(policyRepository.findProviderIntervalsByCarIds(carIds).iterator());
+            rows.forEach(row -> recorded.add(new RecordedClaim(row, providers.activeOn(row.carId(), row.claimDate()))));
+        }
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (recordLock) {
+                Aggregates target = aggregates;
+                recorded.forEach(claim -> target.add(claim.row(), claim.provider()));
+                if (recordedDuringRebuild != null) {
+                    recordedDuringRebuild.addAll(recorded);
+                }
+            }
+        });
+    }
+
+    public List<ClaimStatsDto> query(ClaimAnalyticsQuery query) {
+        if (query.limit() < 1 || query.limit() > MAX_LIMIT) {
+            throw new BadRequestException("Invalid limit (" + query.limit() + "): must be between 1 and " + MAX_LIMIT);
+        }
+        if (query.from() != null && query.to() != null && query.from().isAfter(query.to())) {
+            throw new BadRequestException("Invalid month range: from (" + query.from() + ") is after to (" + query.to() + ")");
+        }
+        Aggregates current = aggregates;
+        return switch (query.groupBy()) {
+            case CAR -> lifetime(current.byCar, query);
+            case OWNER -> lifetime(current.byOwner, query);
+            case MAKE_MODEL -> monthly(current.byMakeModel, query);
+            case PROVIDER -> monthly(current.byProvider, query);
+            case ALL -> monthly(current.all, query);
+        };
+    }
+
+    // car and owner have as many groups as there are cars, so they are kept as lifetime totals only
+    private static List<ClaimStatsDto> lifetime(Map<Long, ClaimAmountStats> cells, ClaimAnalyticsQuery query) {
+        if (query.from() != null || query.to() != null || query.bucket() != ClaimAnalyticsQuery.Bucket.NONE) {
+            throw new BadRequestException("Claims grouped by car or owner are kept as lifetime totals: from, to and bucket are not supported");
+        }
+        if (query.key() != null) {
+            ClaimAmountStats stats = cells.get(parseId(query.key()));
+            return stats == null ? List.of() : List.of(stats.toDto(query.key(), null));
+        }
+        // largest totals first: keep the top entries in a min-heap instead of sorting every car
+        Comparator<Group> byTotal = Comparator.comparingLong(Group::totalCents).thenComparing(Group::key, Comparator.reverseOrder());
+        PriorityQueue<Group> top = new PriorityQueue<>(query.limit() + 1, byTotal);
+        cells.forEach((id, stats) -> {
+            top.add(new Group(String.valueOf(id), null, stats, stats.totalCents()));
+            if (top.size() > query.limit()) {
+                top.poll();
+            }
+        });
+        return top.stream().sorted(byTotal.reversed()).map(Group::toDto).toList();
+    }
+
+    private static List<ClaimStatsDto> monthly(Map<String, NavigableMap<Integer, ClaimAmountStats>> cells, ClaimAnalyticsQuery query) {
+        int from = query.from() != null ? month(query.from()) : Integer.MIN_VALUE;
+        int to = query.to() != null ? month(query.to()) : Integer.MAX_VALUE;
+        Collection<String> keys = query.key() != null ? List.of(query.key()) : cells.keySet();
+        List<Group> groups = new ArrayList<>();
+        for (String key : keys) {
+            NavigableMap<Integer, ClaimAmountStats> months = cells.get(key);
+            if (months == null) {
+                continue;
+            }
+            Map<String, ClaimAmountStats> periods = new TreeMap<>();
+            months.subMap(from, true, to, true).forEach((month, stats) -> {
+                String period = switch (query.bucket()) {
+                    case NONE -> "";
+                    case MONTH -> toYearMonth(month).toString();
+                    case YEAR -> String.valueOf(toYearMonth(month).getYear());
+                };
+                periods.computeIfAbsent(period, p -> new ClaimAmountStats()).merge(stats.copy());
+            });
+            periods.forEach((period, stats) -> groups.add(new Group(key, period.isEmpty() ? null : period, stats, stats.totalCents())));
+        }
+        Comparator<Group> order = query.bucket() == ClaimAnalyticsQuery.Bucket.NONE
+                ? Comparator.comparingLong(Group::totalCents).reversed().thenComparing(Group::key)
+                : Comparator.comparing(Group::key).thenComparing(Group::period);
+        return groups.stream().sorted(order).limit(query.limit()).map(Group::toDto).toList();
+    }
+
+    private static Long parseId(String key) {
+        try {
+            return Long.valueOf(key);
+        } catch (NumberFormatException ex) {
+            throw new BadRequestException("Invalid key (" + key + "): cars and owners are identified by their numeric id");
+        }
+    }
+
+    static int month(YearMonth yearMonth) {
+        return yearMonth.getYear() * 12 + yearMonth.getMonthValue() - 1;
+    }
+
+    static YearMonth toYearMonth(int month) {
+        return YearMonth.of(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1);
+    }
+
+    private record Group(String key, String period, ClaimAmountStats stats, long totalCents) {
+        ClaimStatsDto toDto() {
+            return stats.toDto(key, period);
+        }
+    }
+
+    private record RecordedClaim(ClaimAmountRow row, String provider) {}
+
+    // ids of the claims a rebuild read, sorted once it is done
+    private static final class ClaimIds {
+        private long[] ids = new long[1024];
+        private int size;
+
+        void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        void sort() {
+            Arrays.sort(ids, 0, size);
+        }
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+    }
+
+    private static final class Aggregates {
+        final Map<Long, ClaimAmountStats> byCar = new ConcurrentHashMap<>();
+        final Map<Long, ClaimAmountStats> byOwner = new ConcurrentHashMap<>();
+        final Map<String, NavigableMap<Integer, ClaimAmountStats>> byMakeModel = new ConcurrentHashMap<>();
+        final Map<String, NavigableMap<Integer, ClaimAmountStats>> byProvider = new ConcurrentHashMap<>();
+        final Map<String, NavigableMap<Integer, ClaimAmountStats>> all = new ConcurrentHashMap<>();
+
+        void add(ClaimAmountRow row, String provider) {
+            long cents = ClaimAmountStats.toCents(row.amount());
+            int month = month(YearMonth.from(row.claimDate()));
+            byCar.computeIfAbsent(row.carId(), id -> new ClaimAmountStats()).add(cents);
+            if (row.ownerId() != null) {
+                byOwner.computeIfAbsent(row.ownerId(), id -> new ClaimAmountStats()).add(cents);
+            }
+            addMonthly(byMakeModel, makeModel(row), month, cents);
+            addMonthly(byProvider, provider != null ? provider : NONE, month, cents);
+            addMonthly(all, ALL_CLAIMS, month, cents);
+        }
+
+        private static void addMonthly(Map<String, NavigableMap<Integer, ClaimAmountStats>> cells, String key, int month, long cents) {
+            cells.computeIfAbsent(key, k -> new ConcurrentSkipListMap<>())
+                    .computeIfAbsent(month, m -> new ClaimAmountStats())
+                    .add(cents);
+        }
+
+        private static String makeModel(ClaimAmountRow row) {
+            String makeModel = (Objects.toString(row.make(), "") + " " + Objects.toString(row.model(), "")).trim();
+            return makeModel.isEmpty() ? NONE : makeModel;
+        }
+    }
+
+    // walks policies sorted by car and start date, answering for claims that come sorted by car
+    private static final class ProviderLookup {
+        private final Iterator<ProviderInterval> intervals;
+        private final List<ProviderInterval> carPolicies = new ArrayList<>();
+        private ProviderInterval next;
+        private Long car;
+
+        ProviderLookup(Iterator<ProviderInterval> intervals) {
+            this.intervals = intervals;
+            this.next = intervals.hasNext() ? intervals.next() : null;
+        }
+
+        String activeOn(Long carId, LocalDate date) {
+            if (!carId.equals(car)) {
+                car = carId;
+                carPolicies.clear();
+                while (next != null && next.carId() < carId) {
+                    next = intervals.hasNext() ? intervals.next() : null;
+                }
+                while (next != null && next.carId().equals(carId)) {
+                    carPolicies.add(next);
+                    next = intervals.hasNext() ? intervals.next() : null;
+                }
+            }
+            for (int i = carPolicies.size() - 1; i >= 0; i--) {
+                ProviderInterval policy = carPolicies.get(i);
+                if (policy.startDate() != null && !policy.startDate().isAfter(date)
+                        && (policy.endDate() == null || !policy.endDate().isBefore(date))) {
+                    return policy.provider();
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.carins.service;
+
+import com.example.carins.web.exception.BadRequestException;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Locale;
+
+// from/to bound the claim month (inclusive); key narrows the result to one group; bucket splits groups by month or year
+public record ClaimAnalyticsQuery(Group groupBy, Bucket bucket, YearMonth from, YearMonth to, String key, int limit) {
+
+    public enum Group {
+        ALL, CAR, OWNER, MAKE_MODEL, PROVIDER;
+
+        public static Group parse(String value) {
+            return parseEnum(Group.class, "groupBy", value);
+        }
+    }
+
+    public enum Bucket {
+        NONE, MONTH, YEAR;
+
+        public static Bucket parse(String value) {
+            return value == null ? NONE : parseEnum(Bucket.class, "bucket", value);
+        }
+    }
+
+    // request values are lower case with dashes, e.g. make-model
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String parameter, String value) {
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException | NullPointerException ex) {
+            throw new BadRequestException("Invalid " + parameter + " (" + value + "): must be one of "
+                    + Arrays.stream(type.getEnumConstants()).map(e -> e.name().toLowerCase(Locale.ROOT).replace('_', '-')).toList());
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.example.carins.service;
+
+import com.example.carins.model.Claim;
+import com.example.carins.web.dto.ClaimScanResultDto;
+import com.example.carins.web.exception.BadRequestException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Column-oriented copy of the claim table for ad-hoc scans by date, amount, car and description.
+ * Each column is a primitive array (car ids, epoch days, amounts in cents) and descriptions are dictionary
+ * encoded, so a scan touches no entities, dates or decimals; it is split across a fork-join pool.
+ * <p>
+ * The snapshot is loaded on startup and reloaded every carins.claims.snapshot.refresh-interval; in between,
+ * claims written through the application are appended once their transaction commits. Appends write past
+ * the end of the published arrays (or into grown copies) before a new view is published, so scans never lock.
+ */
+@Component
+public class ClaimColumnSnapshot {
+    private static final Logger logger = LoggerFactory.getLogger(ClaimColumnSnapshot.class);
+    private static final String LOAD_SQL = "select id, car_id, claim_date, description, amount from claim order by id";
+    private static final int LOAD_FETCH_SIZE = 10_000;
+    // rows scanned by one fork-join task without splitting further
+    private static final int SCAN_SLICE = 1 << 16;
+
+    private final JdbcTemplate jdbc;
+    private final TaskScheduler taskScheduler;
+    private final Duration refreshInterval;
+    private final ForkJoinPool scanPool;
+    private final Object appendLock = new Object();
+    private Columns columns = new Columns(16);
+    // claims appended while a reload runs; the reload adds the ones it did not read itself
+    private List<Row> appendedDuringReload;
+    private volatile Snapshot current = columns.publish();
+    private ScheduledFuture<?> refresh;
+
+    public ClaimColumnSnapshot(JdbcTemplate jdbc, TaskScheduler taskScheduler,
+                               @Value("${carins.claims.snapshot.refresh-interval:1h}") Duration refreshInterval,
+                               @Value("${carins.claims.snapshot.parallelism:0}") int parallelism) {
+        this.jdbc = jdbc;
+        this.taskScheduler = taskScheduler;
+        this.refreshInterval = refreshInterval;
+        // 0 uses every core
+        this.scanPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PostConstruct
+    public void start() {
+        reload();
+        refresh = taskScheduler.scheduleWithFixedDelay(this::reload, Instant.now().plus(refreshInterval), refreshInterval);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresh != null) {
+            refresh.cancel(false);
+        }
+        scanPool.shutdownNow();
+    }
+
+    public void reload() {
+        long startNanos = System.nanoTime();
+        synchronized (appendLock) {
+            appendedDuringReload = new ArrayList<>();
+        }
+        Columns loaded = new Columns(Math.max(16, current.size()));
+        try {
+            jdbc.query(connection -> {
+                var statement = connection.prepareStatement(LOAD_SQL);
+                statement.setFetchSize(LOAD_FETCH_SIZE);
+                return statement;
+            }, (RowCallbackHandler) rs -> loaded.add(rs.getLong(1), rs.getLong(2),
+                    (int) rs.getObject(3, LocalDate.class).toEpochDay(), rs.getString(4),
+                    ClaimAmountStats.toCents(rs.getBigDecimal(5))));
+        } catch (RuntimeException ex) {
+            synchronized (appendLock) {
+                appendedDuringReload = null;
+            }
+            throw ex;
+        }
+        int loadedRows = loaded.size;
+        synchronized (appendLock) {
+            // rows are loaded in id order, so whether the load saw an appended claim is a binary search
+            for (Row row : appendedDuringReload) {
+                if (Arrays.binarySearch(loaded.ids, 0, loadedRows, row.id()) < 0) {
+                    loaded.add(row.id(), row.carId(), row.day(), row.description(), row.cents());
+                }
+            }
+            appendedDuringReload = null;
+            columns = loaded;
+            current = loaded.publish();
+        }
+        logger.info("Claim snapshot loaded {} claims ({} distinct descriptions) in {} ms",
+                loadedRows, loaded.dictionarySize, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    public void appendAfterCommit(Collection<Claim> claims) {
+        if (claims.isEmpty()) {
+            return;
+        }
+        List<Row> rows = claims.stream()
+                .map(claim -> new Row(claim.getId(), claim.getCar().getId(), (int) claim.getClaimDate().toEpochDay(),
+                        claim.getDescription(), ClaimAmountStats.toCents(claim.getAmount())))
+                .toList();
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (appendLock) {
+                rows.forEach(row -> columns.add(row.id(), row.carId(), row.day(), row.description(), row.cents()));
+                if (appendedDuringReload != null) {
+                    appendedDuringReload.addAll(rows);
+                }
+                current = columns.publish();
+            }
+        });
+    }
+
+    public int size() {
+        return current.size();
+    }
+
+    // every bound is optional and inclusive; description matches case-insensitively anywhere in the text
+    public ClaimScanResultDto scan(LocalDate from, LocalDate to, BigDecimal minAmount, BigDecimal maxAmount,
+                                   Long carId, String description) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new BadRequestException("Invalid date range: from (" + from + ") is after to (" + to + ")");
+        }
+        if (minAmount != null && maxAmount != null && minAmount.compareTo(maxAmount) > 0) {
+            throw new BadRequestException("Invalid amount range: minAmount (" + minAmount + ") is above maxAmount (" + maxAmount + ")");
+        }
+        Snapshot snapshot = current;
+        Filter filter = new Filter(
+                from != null ? (int) from.toEpochDay() : Integer.MIN_VALUE,
+                to != null ? (int) to.toEpochDay() : Integer.MAX_VALUE,
+                minAmount != null ? minAmount.setScale(2, RoundingMode.CEILING).unscaledValue().longValueExact() : Long.MIN_VALUE,
+                maxAmount != null ? maxAmount.setScale(2, RoundingMode.FLOOR).unscaledValue().longValueExact() : Long.MAX_VALUE,
+                carId != null, carId != null ? carId : 0L,
+                description != null ? snapshot.matchingDescriptions(description.toLowerCase(Locale.ROOT)) : null);
+        Totals totals = scanPool.invoke(new ScanTask(snapshot, filter, 0, snapshot.size()));
+        return totals.toDto(snapshot.size());
+    }
+
+    private record Row(long id, long carId, int day, String description, long cents) {}
+
+    // only touched under appendLock, or by a reload before it is published
+    private static final class Columns {
+        long[] ids;
+        long[] carIds;
+        int[] days;
+        long[] cents;
+        int[] descriptions;
+        int size;
+        String[] dictionary = new String[16];
+        int dictionarySize;
+        final Map<String, Integer> codes = new HashMap<>();
+
+        Columns(int capacity) {
+            ids = new long[capacity];
+            carIds = new long[capacity];
+            days = new int[capacity];
+            cents = new long[capacity];
+            descriptions = new int[capacity];
+        }
+
+        void add(long id, long carId, int day, String description, long amountCents) {
+            if (size == ids.length) {
+                int capacity = size + (size >> 1);
+                ids = Arrays.copyOf(ids, capacity);
+                carIds = Arrays.copyOf(carIds, capacity);
+                days = Arrays.copyOf(days, capacity);
+                cents = Arrays.copyOf(cents, capacity);
+                descriptions = Arrays.copyOf(descriptions, capacity);
+            }
+            ids[size] = id;
+            carIds[size] = carId;
+            days[size] = day;
+            cents[size] = amountCents;
+            descriptions[size] = encode(description);
+            size++;
+        }
+
+        private int encode(String description) {
+            Integer code = codes.get(description);
+            if (code != null) {
+                return code;
+            }
+            if (dictionarySize == dictionary.length) {
+                dictionary = Arrays.copyOf(dictionary, dictionarySize * 2);
+            }
+            dictionary[dictionarySize] = description;
+            codes.put(description, dictionarySize);
+            return dictionarySize++;
+        }
+
+        Snapshot publish() {
+            return new Snapshot(carIds, days, cents, descriptions, size, dictionary, dictionarySize);
+        }
+    }
+
+    // an immutable view: later appends only write beyond size, or into copies of the arrays
+    private record Snapshot(long[] carIds, int[] days, long[] cents, int[] descriptions, int size,
+                            String[] dictionary, int dictionarySize) {
+
+        // the predicate runs once per distinct description instead of once per claim
+        boolean[] matchingDescriptions(String needle) {
+            boolean[] matches = new boolean[dictionarySize];
+            for (int code = 0; code < dictionarySize; code++) {
+                matches[code] = dictionary[code] != null && dictionary[code].toLowerCase(Locale.ROOT).contains(needle);
+            }
+            return matches;
+        }
+    }
+
+    private record Filter(int fromDay, int toDay, long minCents, long maxCents, boolean byCar, long carId,
+                          boolean[] descriptions) {}
+
+    private static final class Totals {
+        long count;
+        long sumCents;
+        long minCents = Long.MAX_VALUE;
+        long maxCents = Long.MIN_VALUE;
+
+        Totals merge(Totals other) {
+            count += other.count;
+            sumCents += other.sumCents;
+            minCents = Math.min(minCents, other.minCents);
+            maxCents = Math.max(maxCents, other.maxCents);
+            return this;
+        }
+
+        ClaimScanResultDto toDto(int scanned) {
+            if (count == 0) {
+                return new ClaimScanResultDto(scanned, 0, BigDecimal.ZERO.setScale(2), null, null, null);
+            }
+            BigDecimal average = BigDecimal.valueOf(sumCents).divide(BigDecimal.valueOf(count), 0, RoundingMode.HALF_UP).movePointLeft(2);
+            return new ClaimScanResultDto(scanned, count, BigDecimal.valueOf(sumCents, 2), average,
+                    BigDecimal.valueOf(minCents, 2), BigDecimal.valueOf(maxCents, 2));
+        }
+    }
+
+    private static final class ScanTask extends RecursiveTask<Totals> {
+        private final Snapshot snapshot;
+        private final Filter filter;
+        private final int from;
+        private final int to;
+
+        ScanTask(Snapshot snapshot, Filter filter, int from, int to) {
+            this.snapshot = snapshot;
+            this.filter = filter;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from > SCAN_SLICE) {
+                int middle = (from + to) >>> 1;
+                ScanTask left = new ScanTask(snapshot, filter, from, middle);
+                left.fork();
+                Totals right = new ScanTask(snapshot, filter, middle, to).compute();
+                return left.join().merge(right);
+            }
+            int[] days = snapshot.days();
+            long[] cents = snapshot.cents();
+            long[] carIds = snapshot.carIds();
+            int[] descriptions = snapshot.descriptions();
+            Totals totals = new Totals();
+            for (int i = from; i < to; i++) {
+                int day = days[i];
+                long amount = cents[i];
+                if (day < filter.fromDay() || day > filter.toDay() || amount < filter.minCents() || amount > filter.maxCents()
+                        || (filter.byCar() && carIds[i] != filter.carId())
+                        || (filter.descriptions() != null && !filter.descriptions()[descriptions[i]])) {
+                    continue;
+                }
+                totals.count++;
+                totals.sumCents += amount;
+                totals.minCents = Math.min(totals.minCents, amount);
+                totals.maxCents = Math.max(totals.maxCents, amount);
+            }
+            return totals;
+        }
+    }
+}
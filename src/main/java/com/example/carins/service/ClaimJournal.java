@@ -0,0 +1,209 @@
+package com.example.carins.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Append-only file of claim submissions, one JSON object per line. Appends are group committed: a single writer
+ * thread takes every entry queued so far, writes them and forces the file once, then completes their futures,
+ * so a burst of submissions shares one fsync. When the file grows past the compaction threshold it is rewritten
+ * from the live entries the owner supplies, and swapped in with an atomic move.
+ */
+final class ClaimJournal {
+    private static final Logger logger = LoggerFactory.getLogger(ClaimJournal.class);
+    private static final String FILE_NAME = "claims.journal";
+
+    enum EntryType { SUBMITTED, WRITTEN, FAILED }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record Entry(EntryType type, String trackingId, String idempotencyKey, Long carId, String claimDate,
+                 String description, BigDecimal amount, Long receivedAt, Long claimId, String message) {
+
+        static Entry submitted(String trackingId, String idempotencyKey, Long carId, String claimDate,
+                               String description, BigDecimal amount, long receivedAt) {
+            return new Entry(EntryType.SUBMITTED, trackingId, idempotencyKey, carId, claimDate, description, amount,
+                    receivedAt, null, null);
+        }
+
+        static Entry written(String trackingId, long claimId) {
+            return new Entry(EntryType.WRITTEN, trackingId, null, null, null, null, null, null, claimId, null);
+        }
+
+        static Entry failed(String trackingId, String message) {
+            return new Entry(EntryType.FAILED, trackingId, null, null, null, null, null, null, null, message);
+        }
+    }
+
+    private record Append(byte[] line, CompletableFuture<Void> done) {}
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final Path file;
+    private final long compactThreshold;
+    private final Supplier<List<Entry>> liveEntries;
+    private final BlockingQueue<Append> appends = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private FileChannel channel;
+    private long compactAt;
+    private volatile boolean running = true;
+
+    ClaimJournal(Path directory, long compactThreshold, Thread.Builder threads, Supplier<List<Entry>> liveEntries) {
+        this.file = directory.resolve(FILE_NAME);
+        this.compactThreshold = compactThreshold;
+        this.compactAt = compactThreshold;
+        this.liveEntries = liveEntries;
+        this.writer = threads.name("claim-journal").unstarted(this::run);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot create claim journal directory " + directory, ex);
+        }
+    }
+
+    // entries in the order they were appended; a torn last line (crash mid-write) is skipped
+    List<Entry> read() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return entries;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    entries.add(json.readValue(line, Entry.class));
+                } catch (IOException ex) {
+                    logger.warn("Skipping unreadable line {} of claim journal {}", number, file);
+                }
+            }
+        }
+        return entries;
+    }
+
+    void start() throws IOException {
+        channel = open();
+        writer.start();
+    }
+
+    // stops accepting appends and lets the writer flush what is already queued
+    void stop(Duration timeout) throws InterruptedException, IOException {
+        running = false;
+        writer.join(timeout.toMillis());
+        List<Append> unwritten = new ArrayList<>();
+        appends.drainTo(unwritten);
+        unwritten.forEach(append -> append.done().completeExceptionally(new IllegalStateException("Claim journal is stopped")));
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    CompletableFuture<Void> append(Entry entry) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Claim journal is stopped"));
+        }
+        try {
+            byte[] line = (json.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+            Append append = new Append(line, new CompletableFuture<>());
+            appends.add(append);
+            return append.done();
+        } catch (IOException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    private void run() {
+        List<Append> batch = new ArrayList<>();
+        while (running || !appends.isEmpty()) {
+            try {
+                Append first = appends.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                appends.drainTo(batch);
+                write(batch);
+                batch.clear();
+                if (channel.size() > compactAt) {
+                    compact();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (IOException ex) {
+                logger.error("Claim journal compaction failed, keeping {}", file, ex);
+            }
+        }
+    }
+
+    private void write(List<Append> batch) {
+        try {
+            int size = 0;
+            for (Append append : batch) {
+                size += append.line().length;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            for (Append append : batch) {
+                buffer.put(append.line());
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            batch.forEach(append -> append.done().complete(null));
+        } catch (IOException ex) {
+            logger.error("Failed to append {} entries to claim journal {}", batch.size(), file, ex);
+            batch.forEach(append -> append.done().completeExceptionally(ex));
+        }
+    }
+
+    // only the writer thread touches the channel, so nothing is appended while the file is swapped
+    private void compact() throws IOException {
+        Path compacted = file.resolveSibling(FILE_NAME + ".compact");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Entry entry : liveEntries.get()) {
+                ByteBuffer line = ByteBuffer.wrap((json.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8));
+                while (line.hasRemaining()) {
+                    out.write(line);
+                }
+            }
+            out.force(true);
+        }
+        channel.close();
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = open();
+        // if most of the journal is live, wait for it to double before rewriting it again
+        compactAt = Math.max(compactThreshold, 2 * channel.size());
+        logger.info("Compacted claim journal {} to {} bytes", file, channel.size());
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
@@ -1,6 +1,5 @@
 package com.example.carins.service;
 
-import com.example.carins.model.Car;
 import com.example.carins.model.Claim;
 import com.example.carins.repo.CarRepository;
 import com.example.carins.repo.ClaimRepository;
@@ -8,24 +7,39 @@ import com.example.carins.web.dto.ClaimCreateRequestDto;
 import com.example.carins.web.dto.ClaimResponseDto;
 import com.example.carins.web.exception.CarNotFoundException;
 import com.example.carins.web.exception.InvalidDateException;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.List;
 
 @Service
+@Timed("carins.service")
 public class ClaimService {
     private final ClaimRepository claimRepository;
     private final CarRepository carRepository;
+    private final ReferenceDataCache referenceData;
+    private final ClaimAnalyticsIndex analytics;
+    private final ClaimColumnSnapshot snapshot;
+    private final ResourceVersions versions;
 
-    public ClaimService(ClaimRepository claimRepository, CarRepository carRepository) {
+    public ClaimService(ClaimRepository claimRepository, CarRepository carRepository, ReferenceDataCache referenceData,
+                        ClaimAnalyticsIndex analytics, ClaimColumnSnapshot snapshot, ResourceVersions versions) {
         this.claimRepository = claimRepository;
         this.carRepository = carRepository;
+        this.referenceData = referenceData;
+        this.analytics = analytics;
+        this.snapshot = snapshot;
+        this.versions = versions;
     }
 
 
+    @Transactional
     public ClaimResponseDto createClaim(Long carId, ClaimCreateRequestDto claimReqDto) {
-        Car car = carRepository.findById(carId)
-                .orElseThrow(() -> new CarNotFoundException(carId));
+        if (referenceData.findCar(carId) == null) {
+            throw new CarNotFoundException(carId);
+        }
 
         LocalDate claimDate;
         try {
@@ -34,9 +48,12 @@ public class ClaimService {
             throw new InvalidDateException(claimReqDto.claimDate());
         }
 
-        Claim claim = new Claim(car, claimDate, claimReqDto.description(), claimReqDto.amount());
+        Claim claim = new Claim(carRepository.getReferenceById(carId), claimDate, claimReqDto.description(), claimReqDto.amount());
 
         claim = claimRepository.save(claim);
+        analytics.recordAfterCommit(List.of(claim.getId()));
+        snapshot.appendAfterCommit(List.of(claim));
+        versions.carChangedAfterCommit(carId);
         return new ClaimResponseDto(claim.getId(),claim.getCar().getId(),claim.getClaimDate(),claim.getDescription(),claim.getAmount());
     }
 }
@@ -0,0 +1,400 @@
+package com.example.carins.service;
+
+import com.example.carins.model.Car;
+import com.example.carins.model.Claim;
+import com.example.carins.repo.ClaimRepository;
+import com.example.carins.repo.projection.SubmittedClaim;
+import com.example.carins.web.dto.ClaimCreateRequestDto;
+import com.example.carins.web.dto.ClaimSubmissionDto;
+import com.example.carins.web.dto.ClaimSubmissionStatus;
+import com.example.carins.web.exception.BadRequestException;
+import com.example.carins.web.exception.CarNotFoundException;
+import com.example.carins.web.exception.ClaimSubmissionNotFoundException;
+import com.example.carins.web.exception.IdempotencyKeyMismatchException;
+import com.example.carins.web.exception.IngestionQueueFullException;
+import com.example.carins.web.exception.InvalidDateException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Asynchronous claim intake for bursts, e.g. a hail storm hitting the mobile app. A submission is checked (the car
+ * exists, the date parses), made durable in the {@link ClaimJournal} and answered with a tracking id; a background
+ * writer then inserts queued claims in batches. Each claim row carries the tracking id of its submission under a
+ * unique index, so replaying the journal after a crash never inserts a claim twice.
+ * <p>
+ * A retry with the same Idempotency-Key for the same car gets the original submission back instead of a new one;
+ * keys are remembered for the retention period after their submission. An expired key is treated as new, and a
+ * periodic sweep forgets expired submissions whether or not the journal is being compacted.
+ */
+@Service
+public class ClaimSubmissionService {
+    private static final Logger logger = LoggerFactory.getLogger(ClaimSubmissionService.class);
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
+    private final ReferenceDataCache referenceData;
+    private final ClaimRepository claimRepository;
+    private final ClaimAnalyticsIndex analytics;
+    private final ClaimColumnSnapshot snapshot;
+    private final ResourceVersions versions;
+    private final EntityManager entityManager;
+    private final TransactionTemplate tx;
+    private final int batchSize;
+    private final long retentionMillis;
+    private final ClaimJournal journal;
+    private final IngestionQueue<Submission> queue;
+    private final Map<String, Submission> byTrackingId = new ConcurrentHashMap<>();
+    private final Map<String, Submission> byIdempotencyKey = new ConcurrentHashMap<>();
+
+    public ClaimSubmissionService(ReferenceDataCache referenceData, ClaimRepository claimRepository, ClaimAnalyticsIndex analytics,
+                                  ClaimColumnSnapshot snapshot, ResourceVersions versions,
+                                  EntityManager entityManager, PlatformTransactionManager transactionManager,
+                                  @Value("${carins.claims.async.queue-capacity:100000}") int queueCapacity,
+                                  @Value("${carins.claims.async.batch-size:500}") int batchSize,
+                                  @Value("${carins.claims.async.flush-interval:50ms}") Duration flushInterval,
+                                  @Value("${carins.claims.journal.dir:data/claim-journal}") String journalDir,
+                                  @Value("${carins.claims.journal.compact-threshold:16MB}") DataSize compactThreshold,
+                                  @Value("${carins.claims.idempotency-retention:24h}") Duration retention,
+                                  @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.referenceData = referenceData;
+        this.claimRepository = claimRepository;
+        this.analytics = analytics;
+        this.snapshot = snapshot;
+        this.versions = versions;
+        this.entityManager = entityManager;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.retentionMillis = retention.toMillis();
+        Thread.Builder threads = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon(true);
+        this.journal = new ClaimJournal(Path.of(journalDir), compactThreshold.toBytes(), threads, this::liveEntries);
+        // write() isolates failed submissions itself and reports them in their status, so no dead letters are kept
+        this.queue = new IngestionQueue<>("claim submissions", queueCapacity, batchSize, flushInterval, 0, threads, batch -> {
+            write(batch);
+            return List.of();
+        });
+    }
+
+    // submissions still pending in the journal (accepted but not written before the last shutdown) are written first
+    @PostConstruct
+    public void start() throws IOException {
+        List<Submission> pending = replay(journal.read());
+        journal.start();
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            write(pending.subList(from, Math.min(from + batchSize, pending.size())));
+        }
+        if (!pending.isEmpty()) {
+            logger.info("Wrote {} claim submissions left pending in the journal", pending.size());
+        }
+        queue.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        queue.stop(Duration.ofSeconds(10));
+        journal.stop(Duration.ofSeconds(10));
+    }
+
+    public ClaimSubmissionDto submit(Long carId, ClaimCreateRequestDto request, String idempotencyKey) {
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            throw new BadRequestException("Invalid Idempotency-Key: must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
+        if (referenceData.findCar(carId) == null) {
+            throw new CarNotFoundException(carId);
+        }
+        LocalDate claimDate;
+        try {
+            claimDate = LocalDate.parse(request.claimDate());
+        } catch (Exception ex) {
+            throw new InvalidDateException(request.claimDate());
+        }
+
+        Submission submission = new Submission(UUID.randomUUID().toString(), idempotencyKey, carId, claimDate,
+                request.description(), request.amount(), System.currentTimeMillis());
+        if (idempotencyKey != null) {
+            long expiredBefore = submission.receivedAt - retentionMillis;
+            Submission earlier = byIdempotencyKey.compute(scopedKey(carId, idempotencyKey),
+                    (key, remembered) -> remembered == null || remembered.expired(expiredBefore) ? submission : remembered);
+            if (earlier != submission) {
+                if (!earlier.sameClaim(submission)) {
+                    throw new IdempotencyKeyMismatchException(idempotencyKey);
+                }
+                awaitDurable(earlier);
+                return earlier.toDto();
+            }
+        }
+
+        byTrackingId.put(submission.trackingId, submission);
+        journal.append(submission.submittedEntry()).whenComplete((done, ex) -> {
+            if (ex == null) {
+                submission.durable.complete(null);
+            } else {
+                submission.durable.completeExceptionally(ex);
+            }
+        });
+        if (!queue.offerAll(List.of(submission))) {
+            // a retry with the same key starts over
+            fail(submission, "Submission queue was full");
+            forget(submission);
+            throw new IngestionQueueFullException(queue.name(), 1, queue.remainingCapacity());
+        }
+        awaitDurable(submission);
+        return submission.toDto();
+    }
+
+    public ClaimSubmissionDto status(Long carId, String trackingId) {
+        Submission submission = byTrackingId.get(trackingId);
+        if (submission == null || !submission.carId.equals(carId)) {
+            throw new ClaimSubmissionNotFoundException(trackingId);
+        }
+        return submission.toDto();
+    }
+
+    @Scheduled(fixedDelayString = "${carins.claims.idempotency-sweep-interval:5m}",
+            initialDelayString = "${carins.claims.idempotency-sweep-interval:5m}")
+    public void forgetExpired() {
+        long expiredBefore = System.currentTimeMillis() - retentionMillis;
+        for (Submission submission : byTrackingId.values()) {
+            if (submission.expired(expiredBefore)) {
+                forget(submission);
+            }
+        }
+    }
+
+    private void write(List<Submission> batch) {
+        List<Submission> journaled = new ArrayList<>(batch.size());
+        for (Submission submission : batch) {
+            // a claim is only written once its submission is durable, so a crash can always replay it
+            try {
+                submission.durable.join();
+                journaled.add(submission);
+            } catch (CompletionException ex) {
+                fail(submission, "Submission could not be journaled");
+            }
+        }
+        try {
+            insert(journaled);
+        } catch (RuntimeException batchFailure) {
+            // one bad row (e.g. its car was deleted meanwhile) rolls back the batch: write the rest one at a time
+            for (Submission submission : journaled) {
+                try {
+                    insert(List.of(submission));
+                } catch (RuntimeException ex) {
+                    fail(submission, "Claim could not be written: " + rootMessage(ex));
+                }
+            }
+        }
+    }
+
+    private void insert(List<Submission> submissions) {
+        if (submissions.isEmpty()) {
+            return;
+        }
+        List<Submission> byCar = new ArrayList<>(submissions);
+        byCar.sort(Comparator.comparing((Submission s) -> s.carId));
+        Map<String, Long> claimIds = new HashMap<>();
+        tx.executeWithoutResult(status -> {
+            // rows written before a crash, whose WRITTEN entry never reached the journal
+            for (SubmittedClaim written : claimRepository.findBySubmissionIds(byCar.stream().map(s -> s.trackingId).toList())) {
+                claimIds.put(written.submissionId(), written.claimId());
+            }
+            List<Claim> inserted = new ArrayList<>(byCar.size());
+            for (Submission submission : byCar) {
+                if (claimIds.containsKey(submission.trackingId)) {
+                    continue;
+                }
+                Claim claim = new Claim(entityManager.getReference(Car.class, submission.carId), submission.claimDate,
+                        submission.description, submission.amount);
+                claim.setSubmissionId(submission.trackingId);
+                entityManager.persist(claim);
+                inserted.add(claim);
+            }
+            entityManager.flush();
+            entityManager.clear();
+            inserted.forEach(claim -> claimIds.put(claim.getSubmissionId(), claim.getId()));
+            analytics.recordAfterCommit(inserted.stream().map(Claim::getId).toList());
+            snapshot.appendAfterCommit(inserted);
+            versions.carsChangedAfterCommit(inserted.stream().map(claim -> claim.getCar().getId()).distinct().toList());
+        });
+        for (Submission submission : byCar) {
+            long claimId = claimIds.get(submission.trackingId);
+            submission.written(claimId);
+            journal.append(ClaimJournal.Entry.written(submission.trackingId, claimId));
+        }
+    }
+
+    private void fail(Submission submission, String message) {
+        submission.failed(message);
+        journal.append(ClaimJournal.Entry.failed(submission.trackingId, message));
+    }
+
+    private List<Submission> replay(List<ClaimJournal.Entry> entries) {
+        Map<String, Submission> replayed = new LinkedHashMap<>();
+        for (ClaimJournal.Entry entry : entries) {
+            Submission submission = replayed.get(entry.trackingId());
+            switch (entry.type()) {
+                case SUBMITTED -> replayed.putIfAbsent(entry.trackingId(), Submission.from(entry));
+                case WRITTEN -> {
+                    if (submission != null) {
+                        submission.written(entry.claimId());
+                    }
+                }
+                case FAILED -> {
+                    if (submission != null) {
+                        submission.failed(entry.message());
+                    }
+                }
+            }
+        }
+        long expiredBefore = System.currentTimeMillis() - retentionMillis;
+        List<Submission> pending = new ArrayList<>();
+        for (Submission submission : replayed.values()) {
+            boolean isPending = submission.status == ClaimSubmissionStatus.PENDING;
+            if (isPending) {
+                pending.add(submission);
+            }
+            if (isPending || submission.receivedAt >= expiredBefore) {
+                remember(submission);
+            }
+        }
+        return pending;
+    }
+
+    // what a compacted journal keeps: submissions inside the retention period, plus every pending one
+    private List<ClaimJournal.Entry> liveEntries() {
+        long expiredBefore = System.currentTimeMillis() - retentionMillis;
+        List<ClaimJournal.Entry> live = new ArrayList<>();
+        for (Submission submission : byTrackingId.values()) {
+            if (submission.expired(expiredBefore)) {
+                forget(submission);
+                continue;
+            }
+            live.add(submission.submittedEntry());
+            switch (submission.status) {
+                case WRITTEN -> live.add(ClaimJournal.Entry.written(submission.trackingId, submission.claimId));
+                case FAILED -> live.add(ClaimJournal.Entry.failed(submission.trackingId, submission.message));
+                case PENDING -> {}
+            }
+        }
+        return live;
+    }
+
+    private void remember(Submission submission) {
+        byTrackingId.put(submission.trackingId, submission);
+        if (submission.idempotencyKey != null) {
+            byIdempotencyKey.put(scopedKey(submission.carId, submission.idempotencyKey), submission);
+        }
+    }
+
+    private void forget(Submission submission) {
+        byTrackingId.remove(submission.trackingId);
+        if (submission.idempotencyKey != null) {
+            byIdempotencyKey.remove(scopedKey(submission.carId, submission.idempotencyKey), submission);
+        }
+    }
+
+    private static void awaitDurable(Submission submission) {
+        try {
+            submission.durable.join();
+        } catch (CompletionException ex) {
+            throw new IllegalStateException("Claim submission " + submission.trackingId + " could not be journaled", ex.getCause());
+        }
+    }
+
+    private static String scopedKey(Long carId, String idempotencyKey) {
+        return carId + "/" + idempotencyKey;
+    }
+
+    private static String rootMessage(Throwable ex) {
+        Throwable root = ex;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    private static final class Submission {
+        final String trackingId;
+        final String idempotencyKey;
+        final Long carId;
+        final LocalDate claimDate;
+        final String description;
+        final BigDecimal amount;
+        final long receivedAt;
+        final CompletableFuture<Void> durable = new CompletableFuture<>();
+        volatile ClaimSubmissionStatus status = ClaimSubmissionStatus.PENDING;
+        volatile Long claimId;
+        volatile String message;
+
+        Submission(String trackingId, String idempotencyKey, Long carId, LocalDate claimDate, String description,
+                   BigDecimal amount, long receivedAt) {
+            this.trackingId = trackingId;
+            this.idempotencyKey = idempotencyKey;
+            this.carId = carId;
+            this.claimDate = claimDate;
+            this.description = description;
+            this.amount = amount;
+            this.receivedAt = receivedAt;
+        }
+
+        static Submission from(ClaimJournal.Entry entry) {
+            Submission submission = new Submission(entry.trackingId(), entry.idempotencyKey(), entry.carId(),
+                    LocalDate.parse(entry.claimDate()), entry.description(), entry.amount(), entry.receivedAt());
+            submission.durable.complete(null);
+            return submission;
+        }
+
+        ClaimJournal.Entry submittedEntry() {
+            return ClaimJournal.Entry.submitted(trackingId, idempotencyKey, carId, claimDate.toString(), description,
+                    amount, receivedAt);
+        }
+
+        // pending submissions are kept until they are written or fail, however old they are
+        boolean expired(long expiredBefore) {
+            return status != ClaimSubmissionStatus.PENDING && receivedAt < expiredBefore;
+        }
+
+        boolean sameClaim(Submission other) {
+            return carId.equals(other.carId) && claimDate.equals(other.claimDate)
+                    && Objects.equals(description, other.description) && amount.compareTo(other.amount) == 0;
+        }
+
+        void written(long claimId) {
+            this.claimId = claimId;
+            this.status = ClaimSubmissionStatus.WRITTEN;
+        }
+
+        void failed(String message) {
+            this.message = message;
+            this.status = ClaimSubmissionStatus.FAILED;
+        }
+
+        ClaimSubmissionDto toDto() {
+            return new ClaimSubmissionDto(trackingId, carId, status, claimId, message);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.CarRepository;
+import com.example.carins.web.dto.CarDto;
+import com.example.carins.web.dto.DailyCoverageDto;
+import com.example.carins.web.exception.BadRequestException;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Fleet-wide coverage reports, answered by sweeping the merged policy intervals of the {@link PolicyCoverageIndex}
+ * instead of asking the database once per car. Only the rows of the cars that end up in a report are read.
+ */
+@Service
+@Timed("carins.service")
+public class CoverageReportService {
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+
+    private final PolicyCoverageIndex coverageIndex;
+    private final CarRepository carRepository;
+    private final int maxRangeDays;
+
+    public CoverageReportService(PolicyCoverageIndex coverageIndex, CarRepository carRepository,
+                                 @Value("${carins.reports.max-range-days:3660}") int maxRangeDays) {
+        this.coverageIndex = coverageIndex;
+        this.carRepository = carRepository;
+        this.maxRangeDays = maxRangeDays;
+    }
+
+    // cars without a policy active on the date, in id order
+    public void forEachUninsuredCar(LocalDate date, Consumer<CarDto> sink) {
+        int day = PolicyCoverageIndex.toDay(date);
+        UninsuredIds found = new UninsuredIds();
+        coverageIndex.forEachCar((carId, coverage) -> {
+            if (!coverage.covers(day)) {
+                found.add(carId);
+            }
+        });
+        long[] ids = found.sorted();
+        for (int from = 0; from < ids.length; from += LOOKUP_CHUNK_SIZE) {
+            List<Long> chunk = new ArrayList<>(LOOKUP_CHUNK_SIZE);
+            for (int i = from; i < Math.min(from + LOOKUP_CHUNK_SIZE, ids.length); i++) {
+                chunk.add(ids[i]);
+            }
+            carRepository.findCarDtosByIds(chunk).forEach(sink);
+        }
+    }
+
+    // one pass over every car's intervals: each adds +1 on its first day in range and -1 after its last,
+    // so a running sum gives the insured cars per day (merged intervals of one car never overlap)
+    public List<DailyCoverageDto> dailyCoverage(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new BadRequestException("Invalid date range: from (" + from + ") is after to (" + to + ")");
+        }
+        int first = PolicyCoverageIndex.toDay(from);
+        int last = PolicyCoverageIndex.toDay(to);
+        if (last - first + 1 > maxRangeDays) {
+            throw new BadRequestException("Date range too long: " + (last - first + 1) + " days, at most " + maxRangeDays + " are allowed");
+        }
+        long[] delta = new long[last - first + 2];
+        long[] cars = new long[1];
+        coverageIndex.forEachCar((carId, coverage) -> {
+            cars[0]++;
+            for (int i = 0; i < coverage.size(); i++) {
+                int start = Math.max(coverage.startDay(i), first);
+                int end = Math.min(coverage.endDay(i), last);
+                if (start <= end) {
+                    delta[start - first]++;
+                    delta[end - first + 1]--;
+                }
+            }
+        });
+
+        List<DailyCoverageDto> days = new ArrayList<>(last - first + 1);
+        long insured = 0;
+        for (int day = first; day <= last; day++) {
+            insured += delta[day - first];
+            days.add(new DailyCoverageDto(LocalDate.ofEpochDay(day), cars[0], insured, cars[0] - insured));
+        }
+        return days;
+    }
+
+    private static final class UninsuredIds {
+        private long[] ids = new long[64];
+        private int size;
+
+        void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        long[] sorted() {
+            long[] sorted = Arrays.copyOf(ids, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.carins.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue drained by a single writer thread. The writer takes up to batchSize records at a time,
+ * waiting at most flushInterval after the first one for the batch to fill, and hands them to the batch writer.
+ * Producers either enqueue a whole submission or none of it, so a full queue never splits a request.
+ * A batch that fails is written again one record at a time, so one bad record only loses itself. Records that
+ * still fail, and those the batch writer refuses (e.g. overlapping policies), are kept, newest last, in a bounded
+ * dead-letter list for the status endpoint.
+ */
+final class IngestionQueue<T> {
+    private static final Logger logger = LoggerFactory.getLogger(IngestionQueue.class);
+
+    private final String name;
+    private final BlockingQueue<T> queue;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final BatchWriter<T> batchWriter;
+    private final int deadLetterCapacity;
+    private final Deque<Failure<T>> deadLetters = new ArrayDeque<>();
+    private final ReentrantLock offerLock = new ReentrantLock();
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    IngestionQueue(String name, int capacity, int batchSize, Duration flushInterval, int deadLetterCapacity,
+                   Thread.Builder threads, BatchWriter<T> batchWriter) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.batchWriter = batchWriter;
+        this.deadLetterCapacity = deadLetterCapacity;
+        this.worker = threads.name("ingest-" + name).unstarted(this::run);
+    }
+
+    void start() {
+        worker.start();
+    }
+
+    // lets the worker write what is already queued, then stops it
+    void stop(Duration timeout) throws InterruptedException {
+        running = false;
+        worker.join(timeout.toMillis());
+    }
+
+    // all-or-nothing; returns false when the queue has no room for every record
+    boolean offerAll(List<T> records) {
+        offerLock.lock();
+        try {
+            // only this lock adds to the queue, and the worker only frees space, so the check holds
+            if (!running || queue.remainingCapacity() < records.size()) {
+                return false;
+            }
+            queue.addAll(records);
+            enqueued.addAndGet(records.size());
+            return true;
+        } finally {
+            offerLock.unlock();
+        }
+    }
+
+    String name() {
+        return name;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int remainingCapacity() {
+        return queue.remainingCapacity();
+    }
+
+    // queued plus currently being written
+    long pending() {
+        return enqueued.get() - written.get() - rejected.get() - failed.get();
+    }
+
+    long written() {
+        return written.get();
+    }
+
+    long rejected() {
+        return rejected.get();
+    }
+
+    long failed() {
+        return failed.get();
+    }
+
+    // the most recent records that could not be written, oldest first
+    List<Failure<T>> failures() {
+        synchronized (deadLetters) {
+            return List.copyOf(deadLetters);
+        }
+    }
+
+    private void run() {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                T first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fill(batch, System.nanoTime() + flushIntervalNanos);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void fill(List<T> batch, long deadline) throws InterruptedException {
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+            T next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void write(List<T> batch) {
+        try {
+            apply(batch, batchWriter.write(batch));
+        } catch (RuntimeException batchFailure) {
+            if (batch.size() == 1) {
+                fail(batch.get(0), batchFailure);
+                return;
+            }
+            // one bad record (e.g. its car was deleted meanwhile) rolls back the batch: write the rest one at a time
+            logger.warn("Failed to write a batch of {} {} records, writing them one at a time: {}", batch.size(), name,
+                    rootMessage(batchFailure));
+            for (T record : batch) {
+                try {
+                    apply(List.of(record), batchWriter.write(List.of(record)));
+                } catch (RuntimeException ex) {
+                    fail(record, ex);
+                }
+            }
+        }
+    }
+
+    // called once the batch committed
+    private void apply(List<T> batch, List<Rejected<T>> refused) {
+        for (Rejected<T> rejection : refused) {
+            logger.warn("Rejected a {} record: {}", name, rejection.reason());
+            deadLetter(rejection.record(), rejection.reason());
+            rejected.incrementAndGet();
+        }
+        written.addAndGet(batch.size() - refused.size());
+    }
+
+    private void fail(T record, RuntimeException ex) {
+        String message = rootMessage(ex);
+        logger.error("Failed to write a {} record: {}", name, message);
+        deadLetter(record, message);
+        failed.incrementAndGet();
+    }
+
+    private void deadLetter(T record, String message) {
+        synchronized (deadLetters) {
+            if (deadLetters.size() >= deadLetterCapacity) {
+                deadLetters.pollFirst();
+            }
+            if (deadLetterCapacity > 0) {
+                deadLetters.addLast(new Failure<>(record, message, Instant.now()));
+            }
+        }
+    }
+
+    private static String rootMessage(Throwable ex) {
+        Throwable root = ex;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    // writes a batch in one transaction, leaving out the records it refuses to write; returns those with the reason
+    @FunctionalInterface
+    interface BatchWriter<T> {
+        List<Rejected<T>> write(List<T> batch);
+    }
+
+    record Rejected<T>(T record, String reason) {}
+
+    record Failure<T>(T record, String message, Instant failedAt) {}
+}
@@ -0,0 +1,245 @@
+package com.example.carins.service;
+
+import com.example.carins.model.Car;
+import com.example.carins.model.Claim;
+import com.example.carins.model.InsurancePolicy;
+import com.example.carins.web.dto.ClaimIngestRequestDto;
+import com.example.carins.web.dto.IngestionFailureDto;
+import com.example.carins.web.dto.IngestionReceiptDto;
+import com.example.carins.web.dto.IngestionRejectionDto;
+import com.example.carins.web.dto.IngestionStatusDto;
+import com.example.carins.web.dto.InsurancePolicyRequestDto;
+import com.example.carins.web.exception.BadRequestException;
+import com.example.carins.web.exception.CarNotFoundException;
+import com.example.carins.web.exception.IngestionQueueFullException;
+import com.example.carins.web.exception.InvalidDateException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bulk intake of policies and claims. Records are validated when submitted (dates parsed once,
+ * cars looked up in the {@link PolicyCoverageIndex}), queued, and written by a background worker in
+ * one transaction per batch, sorted by car, using JDBC batch inserts and car references instead of
+ * loading every car. Policies go through the {@link PolicyOverlapService} batch check, one query per batch, so
+ * in reject mode overlapping ones are left out. Records that were accepted but not written are listed by
+ * {@link #failures()}.
+ */
+@Service
+public class IngestionService {
+
+    private final PolicyCoverageIndex coverageIndex;
+    private final PolicyExpiryScheduler expiryScheduler;
+    private final PolicyOverlapService overlapService;
+    private final ClaimAnalyticsIndex claimAnalytics;
+    private final ClaimColumnSnapshot claimSnapshot;
+    private final ResourceVersions versions;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final TransactionTemplate tx;
+    private final IngestionQueue<InsurancePolicyRequestDto> policyQueue;
+    private final IngestionQueue<ClaimRecord> claimQueue;
+
+    public IngestionService(PolicyCoverageIndex coverageIndex, PolicyExpiryScheduler expiryScheduler, PolicyOverlapService overlapService,
+                            ClaimAnalyticsIndex claimAnalytics, ClaimColumnSnapshot claimSnapshot, ResourceVersions versions,
+                            EntityManager entityManager, Validator validator, PlatformTransactionManager transactionManager,
+                            @Value("${carins.ingest.queue-capacity:100000}") int queueCapacity,
+                            @Value("${carins.ingest.batch-size:1000}") int batchSize,
+                            @Value("${carins.ingest.flush-interval:200ms}") Duration flushInterval,
+                            @Value("${carins.ingest.dead-letter-capacity:1000}") int deadLetterCapacity,
+                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.coverageIndex = coverageIndex;
+        this.expiryScheduler = expiryScheduler;
+        this.overlapService = overlapService;
+        this.claimAnalytics = claimAnalytics;
+        this.claimSnapshot = claimSnapshot;
+        this.versions = versions;
+        this.entityManager = entityManager;
+        this.validator = validator;
+        this.tx = new TransactionTemplate(transactionManager);
+        Thread.Builder threads = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon(true);
+        this.policyQueue = new IngestionQueue<>("policies", queueCapacity, batchSize, flushInterval, deadLetterCapacity, threads,
+                this::writePolicies);
+        this.claimQueue = new IngestionQueue<>("claims", queueCapacity, batchSize, flushInterval, deadLetterCapacity, threads,
+                this::writeClaims);
+    }
+
+    @PostConstruct
+    public void start() {
+        policyQueue.start();
+        claimQueue.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        policyQueue.stop(Duration.ofSeconds(10));
+        claimQueue.stop(Duration.ofSeconds(10));
+    }
+
+    public IngestionReceiptDto submitPolicies(List<InsurancePolicyRequestDto> policies) {
+        List<InsurancePolicyRequestDto> accepted = new ArrayList<>(policies.size());
+        List<IngestionRejectionDto> rejected = new ArrayList<>();
+        for (int i = 0; i < policies.size(); i++) {
+            InsurancePolicyRequestDto policy = policies.get(i);
+            String problem = firstViolation(policy);
+            if (problem == null && policy.startDate().isAfter(policy.endDate())) {
+                problem = new InvalidDateException("Start date cannot be after end date. ",
+                        "Provided start date (" + policy.startDate() + ") is after provided end date (" + policy.endDate() + ")").getMessage();
+            }
+            if (problem == null && !coverageIndex.containsCar(policy.carId())) {
+                problem = new CarNotFoundException(policy.carId()).getMessage();
+            }
+            if (problem != null) {
+                rejected.add(new IngestionRejectionDto(i + 1, problem));
+            } else {
+                accepted.add(policy);
+            }
+        }
+        enqueue(policyQueue, accepted);
+        return new IngestionReceiptDto(accepted.size(), rejected);
+    }
+
+    public IngestionReceiptDto submitClaims(List<ClaimIngestRequestDto> claims) {
+        List<ClaimRecord> accepted = new ArrayList<>(claims.size());
+        List<IngestionRejectionDto> rejected = new ArrayList<>();
+        for (int i = 0; i < claims.size(); i++) {
+            ClaimIngestRequestDto claim = claims.get(i);
+            String problem = firstViolation(claim);
+            LocalDate claimDate = null;
+            if (problem == null) {
+                try {
+                    claimDate = LocalDate.parse(claim.claimDate());
+                } catch (Exception ex) {
+                    problem = new InvalidDateException(claim.claimDate()).getMessage();
+                }
+            }
+            if (problem == null && !coverageIndex.containsCar(claim.carId())) {
+                problem = new CarNotFoundException(claim.carId()).getMessage();
+            }
+            if (problem != null) {
+                rejected.add(new IngestionRejectionDto(i + 1, problem));
+            } else {
+                accepted.add(new ClaimRecord(claim.carId(), claimDate, claim.description(), claim.amount()));
+            }
+        }
+        enqueue(claimQueue, accepted);
+        return new IngestionReceiptDto(accepted.size(), rejected);
+    }
+
+    public List<IngestionStatusDto> status() {
+        return List.of(status(policyQueue), status(claimQueue));
+    }
+
+    // per stream, oldest first; each record is shown as it was submitted
+    public List<IngestionFailureDto> failures() {
+        List<IngestionFailureDto> failures = new ArrayList<>();
+        for (IngestionQueue.Failure<InsurancePolicyRequestDto> failure : policyQueue.failures()) {
+            failures.add(new IngestionFailureDto(policyQueue.name(), failure.record(), failure.message(), failure.failedAt()));
+        }
+        for (IngestionQueue.Failure<ClaimRecord> failure : claimQueue.failures()) {
+            failures.add(new IngestionFailureDto(claimQueue.name(), failure.record().toDto(), failure.message(), failure.failedAt()));
+        }
+        return failures;
+    }
+
+    // within a car the policies keep their queue order, so of two overlapping ones the later is rejected
+    private List<IngestionQueue.Rejected<InsurancePolicyRequestDto>> writePolicies(List<InsurancePolicyRequestDto> batch) {
+        List<InsurancePolicyRequestDto> byCar = new ArrayList<>(batch);
+        byCar.sort(Comparator.comparing(InsurancePolicyRequestDto::carId));
+        return tx.execute(status -> {
+            List<String> problems = overlapService.checkBatch(byCar);
+            List<IngestionQueue.Rejected<InsurancePolicyRequestDto>> rejected = new ArrayList<>();
+            Set<Long> carIds = new LinkedHashSet<>();
+            List<PolicyExpiredEvent> expiries = new ArrayList<>(byCar.size());
+            for (int i = 0; i < byCar.size(); i++) {
+                InsurancePolicyRequestDto dto = byCar.get(i);
+                if (problems.get(i) != null) {
+                    rejected.add(new IngestionQueue.Rejected<>(dto, problems.get(i)));
+                    continue;
+                }
+                Car car = entityManager.getReference(Car.class, dto.carId());
+                InsurancePolicy policy = new InsurancePolicy(car, dto.provider(), dto.startDate(), dto.endDate());
+                entityManager.persist(policy);
+                carIds.add(dto.carId());
+                expiries.add(new PolicyExpiredEvent(policy.getId(), dto.carId(), dto.endDate()));
+            }
+            entityManager.flush();
+            entityManager.clear();
+            coverageIndex.refreshCarsAfterCommit(carIds);
+            versions.carsChangedAfterCommit(carIds);
+            expiryScheduler.policiesChangedAfterCommit(expiries);
+            return rejected;
+        });
+    }
+
+    private List<IngestionQueue.Rejected<ClaimRecord>> writeClaims(List<ClaimRecord> batch) {
+        List<ClaimRecord> byCar = new ArrayList<>(batch);
+        byCar.sort(Comparator.comparing(ClaimRecord::carId));
+        tx.executeWithoutResult(status -> {
+            List<Claim> claims = new ArrayList<>(byCar.size());
+            for (ClaimRecord record : byCar) {
+                Car car = entityManager.getReference(Car.class, record.carId());
+                Claim claim = new Claim(car, record.claimDate(), record.description(), record.amount());
+                entityManager.persist(claim);
+                claims.add(claim);
+            }
+            entityManager.flush();
+            entityManager.clear();
+            claimAnalytics.recordAfterCommit(claims.stream().map(Claim::getId).toList());
+            claimSnapshot.appendAfterCommit(claims);
+            versions.carsChangedAfterCommit(byCar.stream().map(ClaimRecord::carId).distinct().toList());
+        });
+        return List.of();
+    }
+
+    private static <T> void enqueue(IngestionQueue<T> queue, List<T> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        if (records.size() > queue.capacity()) {
+            throw new BadRequestException("Too many " + queue.name() + " in one request: " + records.size()
+                    + " provided, at most " + queue.capacity() + " are allowed");
+        }
+        if (!queue.offerAll(records)) {
+            throw new IngestionQueueFullException(queue.name(), records.size(), queue.remainingCapacity());
+        }
+    }
+
+    private <T> String firstViolation(T record) {
+        if (record == null) {
+            return "Record is empty";
+        }
+        Set<ConstraintViolation<T>> violations = validator.validate(record);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        ConstraintViolation<T> violation = violations.iterator().next();
+        return violation.getPropertyPath() + ": " + violation.getMessage();
+    }
+
+    private static IngestionStatusDto status(IngestionQueue<?> queue) {
+        return new IngestionStatusDto(queue.name(), queue.pending(), queue.written(), queue.rejected(), queue.failed(),
+                queue.capacity());
+    }
+
+    private record ClaimRecord(Long carId, LocalDate claimDate, String description, BigDecimal amount) {
+        ClaimIngestRequestDto toDto() {
+            return new ClaimIngestRequestDto(carId, claimDate.toString(), description, amount);
+        }
+    }
+}
@@ -6,58 +6,122 @@ import com.example.carins.repo.CarRepository;
 import com.example.carins.repo.InsurancePolicyRepository;
 import com.example.carins.web.dto.InsurancePolicyRequestDto;
 import com.example.carins.web.dto.InsurancePolicyResponseDto;
+import com.example.carins.web.exception.BadRequestException;
 import com.example.carins.web.exception.CarNotFoundException;
 import com.example.carins.web.exception.InvalidDateException;
 import com.example.carins.web.exception.PolicyNotFoundException;
+import com.example.carins.web.exception.PolicyVersionMismatchException;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
 
 
 @Service
+@Timed("carins.service")
 public class InsurancePolicyService {
+    private static final int MAX_EXTENSION_DAYS = 3660;
 
     private final InsurancePolicyRepository policyRepository;
     private final CarRepository carRepository;
-    private final PolicyExpiryLogger policyExpiryLogger;
-
-    public InsurancePolicyService(InsurancePolicyRepository policyRepository, CarRepository carRepository, PolicyExpiryLogger policyExpiryLogger) {
+    private final PolicyExpiryScheduler expiryScheduler;
+    private final PolicyCoverageIndex coverageIndex;
+    private final ReferenceDataCache referenceData;
+    private final ResourceVersions versions;
+    private final PolicyOverlapService overlapService;
+    private final TransactionTemplate tx;
+    private final OptimisticRetry retry;
+
+    public InsurancePolicyService(InsurancePolicyRepository policyRepository, CarRepository carRepository, PolicyExpiryScheduler expiryScheduler,
+                                  PolicyCoverageIndex coverageIndex, ReferenceDataCache referenceData, ResourceVersions versions,
+                                  PolicyOverlapService overlapService, PlatformTransactionManager transactionManager,
+                                  @Value("${carins.policies.update.max-attempts:5}") int maxAttempts,
+                                  @Value("${carins.policies.update.retry-backoff:2ms}") Duration retryBackoff) {
         this.policyRepository = policyRepository;
         this.carRepository = carRepository;
-        this.policyExpiryLogger = policyExpiryLogger;
+        this.expiryScheduler = expiryScheduler;
+        this.coverageIndex = coverageIndex;
+        this.referenceData = referenceData;
+        this.versions = versions;
+        this.overlapService = overlapService;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.retry = new OptimisticRetry(maxAttempts, retryBackoff);
     }
 
     @Transactional
-    public InsurancePolicyResponseDto createPolicy(InsurancePolicyRequestDto policyDto) {
-        Car car = carRepository.findById(policyDto.carId())
-                .orElseThrow(() -> new CarNotFoundException(policyDto.carId()));
+    public VersionedPolicy createPolicy(InsurancePolicyRequestDto policyDto) {
+        Car car = requireCar(policyDto.carId());
 
         if(policyDto.startDate().isAfter(policyDto.endDate())){
             throw new InvalidDateException("Start date cannot be after end date. ",
                     "Provided start date ("+policyDto.startDate().toString() + ") is after provided end date (" + policyDto.endDate().toString()+")");
         }
 
+        List<Long> overlaps = overlapService.check(car, null, policyDto.startDate(), policyDto.endDate());
         InsurancePolicy policy = new InsurancePolicy(car, policyDto.provider(), policyDto.startDate(), policyDto.endDate());
 
         policy = policyRepository.save(policy); // id auto-generated
+        coverageIndex.refreshCarAfterCommit(car.getId());
+        versions.carChangedAfterCommit(car.getId());
+        expiryScheduler.policyChangedAfterCommit(policy.getId(), car.getId(), policy.getEndDate());
 
-        return new InsurancePolicyResponseDto(
-                policy.getId(),
-                policy.getCar().getId(),
-                policy.getProvider(),
-                policy.getStartDate(),
-                policy.getEndDate());
+        return toVersioned(policy, overlaps);
     }
 
-    @Transactional
-    public InsurancePolicyResponseDto updatePolicy(long id, InsurancePolicyRequestDto policyDto) {
+    @Transactional(readOnly = true)
+    public VersionedPolicy getPolicy(long id) {
         InsurancePolicy policy = policyRepository.findById(id)
                 .orElseThrow(() -> new PolicyNotFoundException(id));
+        return toVersioned(policy, List.of());
+    }
+
+    // a write that loses a race with another update is rerun on fresh state, up to carins.policies.update.max-attempts
+    public VersionedPolicy updatePolicy(long id, InsurancePolicyRequestDto policyDto) {
+        return retry.run(() -> tx.execute(status -> applyUpdate(id, policyDto, null)));
+    }
+
+    // If-Match: the update only applies to expectedVersion. A lost race is retried like any other update, and the
+    // rerun compares the policy's fresh version first, so only a change to the policy itself becomes a mismatch;
+    // a conflict on the car's version (bumped by the overlap check in reject mode) just reruns the write
+    public VersionedPolicy updatePolicy(long id, InsurancePolicyRequestDto policyDto, long expectedVersion) {
+        return retry.run(() -> tx.execute(status -> applyUpdate(id, policyDto, expectedVersion)));
+    }
+
+    // renewal: moves the end date by days, retried like updatePolicy so concurrent extensions all add up
+    public VersionedPolicy extendPolicy(long id, int days) {
+        if (days < 1 || days > MAX_EXTENSION_DAYS) {
+            throw new BadRequestException("Invalid extension (" + days + " days): must be between 1 and " + MAX_EXTENSION_DAYS);
+        }
+        return retry.run(() -> tx.execute(status -> {
+            InsurancePolicy policy = policyRepository.findById(id)
+                    .orElseThrow(() -> new PolicyNotFoundException(id));
+            LocalDate endDate = policy.getEndDate().plusDays(days);
+            List<Long> overlaps = overlapService.check(policy.getCar(), policy.getId(), policy.getStartDate(), endDate);
+            policy.setEndDate(endDate);
+            policy = policyRepository.saveAndFlush(policy);
+            afterPolicyChange(policy);
+            expiryScheduler.policyChangedAfterCommit(policy.getId(), policy.getCar().getId(), policy.getEndDate());
+            return toVersioned(policy, overlaps);
+        }));
+    }
+
+    private VersionedPolicy applyUpdate(long id, InsurancePolicyRequestDto policyDto, Long expectedVersion) {
+        InsurancePolicy policy = policyRepository.findById(id)
+                .orElseThrow(() -> new PolicyNotFoundException(id));
+        if (expectedVersion != null && !expectedVersion.equals(policy.getVersion())) {
+            throw new PolicyVersionMismatchException(id);
+        }
+        Long previousCarId = policy.getCar().getId();
 
         if (!policy.getCar().getId().equals(policyDto.carId())) {
             // provided car ID does not match with the one in the policy
-            Car car = carRepository.findById(policyDto.carId())
-                    .orElseThrow(() ->  new CarNotFoundException(policyDto.carId()));
-            policy.setCar(car);
+            policy.setCar(requireCar(policyDto.carId()));
         }
 
         if(policyDto.startDate().isAfter(policyDto.endDate())){
@@ -65,25 +129,49 @@ public class InsurancePolicyService {
                     "Provided start date ("+policyDto.startDate().toString() + ") is after provided end date (" + policyDto.endDate().toString()+")");
         }
 
+        List<Long> overlaps = overlapService.check(policy.getCar(), policy.getId(), policyDto.startDate(), policyDto.endDate());
         boolean endDateChanged = !policy.getEndDate().equals(policyDto.endDate());
 
         policy.setProvider(policyDto.provider());
         policy.setStartDate(policyDto.startDate());
         policy.setEndDate(policyDto.endDate());
 
-        policy = policyRepository.save(policy);
+        // flushed here so a version conflict surfaces inside the retried block rather than at commit
+        policy = policyRepository.saveAndFlush(policy);
+
+        afterPolicyChange(policy);
+        if (!previousCarId.equals(policy.getCar().getId())) {
+            coverageIndex.refreshCarAfterCommit(previousCarId);
+            versions.carChangedAfterCommit(previousCarId);
+        }
 
         if(endDateChanged){
-            // remove policy ID from the list of logged policy IDs if the end date was changed
-            policyExpiryLogger.removeLoggedPolicyId(policy.getId());
+            // moves the pending expiry to the new end date
+            expiryScheduler.policyChangedAfterCommit(policy.getId(), policy.getCar().getId(), policy.getEndDate());
         }
 
+        return toVersioned(policy, overlaps);
+    }
+
+    private void afterPolicyChange(InsurancePolicy policy) {
+        coverageIndex.refreshCarAfterCommit(policy.getCar().getId());
+        versions.carChangedAfterCommit(policy.getCar().getId());
+    }
 
-        return new InsurancePolicyResponseDto(
+    private static VersionedPolicy toVersioned(InsurancePolicy policy, List<Long> overlaps) {
+        return new VersionedPolicy(new InsurancePolicyResponseDto(
                 policy.getId(),
                 policy.getCar().getId(),
                 policy.getProvider(),
                 policy.getStartDate(),
-                policy.getEndDate());
+                policy.getEndDate()), policy.getVersion(), overlaps);
+    }
+
+    // existence comes from the cache; the policy only needs a reference to the car
+    private Car requireCar(Long carId) {
+        if (referenceData.findCar(carId) == null) {
+            throw new CarNotFoundException(carId);
+        }
+        return carRepository.getReferenceById(carId);
     }
 }
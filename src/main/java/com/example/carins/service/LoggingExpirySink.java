@@ -0,0 +1,15 @@
+package com.example.carins.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+@Component
+public class LoggingExpirySink implements PolicyExpirySink {
+    private static final Logger logger = LoggerFactory.getLogger(LoggingExpirySink.class);
+
+    @Override
+    public void policyExpired(PolicyExpiredEvent event) {
+        logger.info("Policy with id {} for car {} expired on {}", event.policyId(), event.carId(), event.endDate());
+    }
+}
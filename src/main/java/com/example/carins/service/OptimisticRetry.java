@@ -0,0 +1,52 @@
+package com.example.carins.service;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Reruns a unit of work that lost an optimistic locking race, with jittered exponential backoff between attempts
+ * so that writers colliding on one row spread out instead of colliding again. The work has to open its own
+ * transaction: rerunning it inside the failed one would read the same stale state.
+ */
+final class OptimisticRetry {
+    private final int maxAttempts;
+    private final long backoffNanos;
+
+    OptimisticRetry(int maxAttempts, Duration backoff) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+        this.backoffNanos = backoff.toNanos();
+    }
+
+    // the failure of the last attempt is rethrown
+    <T> T run(Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return work.get();
+            } catch (OptimisticLockingFailureException ex) {
+                if (attempt >= maxAttempts) {
+                    throw ex;
+                }
+                pause(attempt);
+            }
+        }
+    }
+
+    private void pause(int attempt) {
+        long ceiling = backoffNanos << Math.min(attempt - 1, 10);
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(Duration.ofNanos(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1)));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying an optimistic update", ex);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.ClaimRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.projection.CarPolicy;
+import com.example.carins.repo.projection.ClaimTotal;
+import com.example.carins.repo.projection.OwnedCar;
+import com.example.carins.web.dto.InsurancePolicyResponseDto;
+import com.example.carins.web.dto.OwnerDto;
+import com.example.carins.web.dto.OwnerPortfolioDto;
+import com.example.carins.web.dto.PortfolioCarDto;
+import com.example.carins.web.exception.BadRequestException;
+import com.example.carins.web.exception.OwnerNotFoundException;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything a broker sees for one owner: their cars, the policy active on a date for each car and the car's
+ * claim totals. A page of cars is resolved with a fixed number of set-based queries (the cars, then the policies
+ * and the claim totals of all of them at once), however many cars the page holds.
+ */
+@Service
+@Timed("carins.service")
+public class OwnerPortfolioService {
+    private final CarRepository carRepository;
+    private final InsurancePolicyRepository policyRepository;
+    private final ClaimRepository claimRepository;
+    private final ReferenceDataCache referenceData;
+    private final int maxPageSize;
+
+    public OwnerPortfolioService(CarRepository carRepository, InsurancePolicyRepository policyRepository,
+                                 ClaimRepository claimRepository, ReferenceDataCache referenceData,
+                                 @Value("${carins.cars.page.max-limit:1000}") int maxPageSize) {
+        this.carRepository = carRepository;
+        this.policyRepository = policyRepository;
+        this.claimRepository = claimRepository;
+        this.referenceData = referenceData;
+        this.maxPageSize = maxPageSize;
+    }
+
+    // keyset page: the owner's cars with id greater than afterCarId, in id order
+    @Transactional(readOnly = true)
+    public OwnerPortfolioDto getPortfolio(Long ownerId, LocalDate date, long afterCarId, int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new BadRequestException("Invalid limit (" + limit + "): must be between 1 and " + maxPageSize);
+        }
+        OwnerDto owner = referenceData.findOwner(ownerId);
+        if (owner == null) {
+            throw new OwnerNotFoundException(ownerId);
+        }
+
+        List<OwnedCar> cars = carRepository.findOwnedCarsAfter(ownerId, afterCarId, Limit.of(limit));
+        long carCount = afterCarId == 0 && cars.size() < limit ? cars.size() : carRepository.countByOwnerId(ownerId);
+        if (cars.isEmpty()) {
+            return new OwnerPortfolioDto(owner.id(), owner.name(), owner.email(), date, carCount, List.of());
+        }
+        List<Long> carIds = cars.stream().map(OwnedCar::id).toList();
+
+        // rows come by car and start date: the latest starting policy wins where policies overlap
+        Map<Long, CarPolicy> currentPolicies = new HashMap<>();
+        for (CarPolicy policy : policyRepository.findActiveOnDateByCarIds(carIds, date)) {
+            currentPolicies.put(policy.carId(), policy);
+        }
+        Map<Long, ClaimTotal> claimTotals = new HashMap<>();
+        for (ClaimTotal total : claimRepository.findTotalsByCarIds(carIds)) {
+            claimTotals.put(total.carId(), total);
+        }
+
+        List<PortfolioCarDto> portfolio = cars.stream().map(car -> {
+            CarPolicy policy = currentPolicies.get(car.id());
+            ClaimTotal claims = claimTotals.get(car.id());
+            return new PortfolioCarDto(car.id(), car.vin(), car.make(), car.model(), car.yearOfManufacture(),
+                    policy == null ? null : new InsurancePolicyResponseDto(policy.policyId(), car.id(), policy.provider(),
+                            policy.startDate(), policy.endDate()),
+                    claims == null ? 0 : claims.count(),
+                    claims == null ? BigDecimal.ZERO.setScale(2) : claims.total());
+        }).toList();
+        return new OwnerPortfolioDto(owner.id(), owner.name(), owner.email(), date, carCount, portfolio);
+    }
+}
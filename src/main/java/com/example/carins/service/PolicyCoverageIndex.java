@@ -0,0 +1,263 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.projection.PolicyInterval;
+import com.example.carins.web.exception.CarNotFoundException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * In-memory view of the days on which each car is insured.
+ * Every known car maps to its policy intervals, merged and sorted, as epoch days,
+ * so validity checks are a binary search without touching the database.
+ * <p>
+ * Refreshes read the database outside any lock, so two of them for the same car can finish in either order.
+ * Each one takes a stamp before it reads and a result is only published over an older one: the refresh that
+ * started last has seen every write whose own refresh started before it.
+ */
+@Component
+public class PolicyCoverageIndex {
+    private static final Logger logger = LoggerFactory.getLogger(PolicyCoverageIndex.class);
+    private static final int REFRESH_CHUNK_SIZE = 1000;
+
+    private final InsurancePolicyRepository policyRepository;
+    private final CarRepository carRepository;
+    private final TransactionTemplate readOnlyTx;
+    private final Map<Long, Coverage> coverageByCar = new ConcurrentHashMap<>();
+    private final AtomicLong refreshStamps = new AtomicLong();
+
+    public PolicyCoverageIndex(InsurancePolicyRepository policyRepository, CarRepository carRepository,
+                               PlatformTransactionManager transactionManager) {
+        this.policyRepository = policyRepository;
+        this.carRepository = carRepository;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        long startNanos = System.nanoTime();
+        long stamp = refreshStamps.incrementAndGet();
+        readOnlyTx.executeWithoutResult(status -> {
+            try (var ids = carRepository.streamAllIds()) {
+                ids.forEach(id -> coverageByCar.putIfAbsent(id, Coverage.EMPTY));
+            }
+            try (var intervals = policyRepository.streamAllIntervals()) {
+                loadSorted(intervals.iterator(), stamp, this::publish);
+            }
+        });
+        logger.info("Policy coverage index built for {} cars in {} ms",
+                coverageByCar.size(), (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    public boolean isCovered(Long carId, LocalDate date) {
+        return requireCar(carId).covers(toDay(date));
+    }
+
+    /** Returns the coverage of a car, or throws {@link CarNotFoundException} when the car is unknown. */
+    public Coverage requireCar(Long carId) {
+        Coverage coverage = coverageByCar.get(carId);
+        if (coverage == null) {
+            throw new CarNotFoundException(carId);
+        }
+        return coverage;
+    }
+
+    /** Returns the coverage of a car, or null when the car is unknown. */
+    public Coverage coverageOf(Long carId) {
+        return coverageByCar.get(carId);
+    }
+
+    public boolean containsCar(Long carId) {
+        return coverageByCar.containsKey(carId);
+    }
+
+    // every known car with its coverage, in no particular order
+    public void forEachCar(BiConsumer<Long, Coverage> action) {
+        coverageByCar.forEach(action);
+    }
+
+    public void registerCarAfterCommit(Long carId) {
+        TransactionCallbacks.afterCommit(() -> coverageByCar.putIfAbsent(carId, Coverage.EMPTY));
+    }
+
+    public void registerCarsAfterCommit(Collection<Long> carIds) {
+        TransactionCallbacks.afterCommit(() -> carIds.forEach(id -> coverageByCar.putIfAbsent(id, Coverage.EMPTY)));
+    }
+
+    public void refreshCarAfterCommit(Long carId) {
+        TransactionCallbacks.afterCommit(() -> refreshCar(carId));
+    }
+
+    public void refreshCar(Long carId) {
+        long stamp = refreshStamps.incrementAndGet();
+        List<PolicyInterval> intervals = policyRepository.findIntervalsByCarId(carId);
+        publish(carId, Coverage.merge(intervals.iterator(), intervals.size(), stamp));
+    }
+
+    public void refreshCarsAfterCommit(Collection<Long> carIds) {
+        TransactionCallbacks.afterCommit(() -> refreshCars(carIds));
+    }
+
+    // one query per chunk of cars instead of one per car; a chunk is published only once it is fully read, so
+    // checks running meanwhile see each car's previous coverage rather than a partly loaded one
+    public void refreshCars(Collection<Long> carIds) {
+        List<Long> ids = List.copyOf(carIds);
+        for (int from = 0; from < ids.size(); from += REFRESH_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + REFRESH_CHUNK_SIZE, ids.size()));
+            long stamp = refreshStamps.incrementAndGet();
+            Map<Long, Coverage> refreshed = new HashMap<>();
+            loadSorted(policyRepository.findIntervalsByCarIds(chunk).iterator(), stamp, refreshed::put);
+            // cars without a single interval row are now uninsured
+            chunk.forEach(id -> refreshed.putIfAbsent(id, Coverage.empty(stamp)));
+            refreshed.forEach(this::publish);
+        }
+    }
+
+    private void loadSorted(Iterator<PolicyInterval> intervals, long stamp, BiConsumer<Long, Coverage> sink) {
+        Coverage.Builder builder = null;
+        Long currentCar = null;
+        while (intervals.hasNext()) {
+            PolicyInterval interval = intervals.next();
+            if (!interval.carId().equals(currentCar)) {
+                if (builder != null) {
+                    sink.accept(currentCar, builder.build(stamp));
+                }
+                currentCar = interval.carId();
+                builder = new Coverage.Builder(4);
+            }
+            builder.add(interval);
+        }
+        if (builder != null) {
+            sink.accept(currentCar, builder.build(stamp));
+        }
+    }
+
+    // a coverage read before the one already published is stale and dropped
+    private void publish(Long carId, Coverage coverage) {
+        coverageByCar.merge(carId, coverage, (published, fresh) -> fresh.stamp >= published.stamp ? fresh : published);
+    }
+
+    static int toDay(LocalDate date) {
+        return (int) date.toEpochDay();
+    }
+
+    /**
+     * Merged, non-overlapping coverage intervals of one car. Instances are immutable
+     * and replaced wholesale on every refresh, so readers never need to lock.
+     */
+    public static final class Coverage {
+        private static final int[] NO_DAYS = new int[0];
+        // a registered car nothing has been read for yet
+        static final Coverage EMPTY = new Coverage(NO_DAYS, NO_DAYS, 0);
+
+        private final int[] starts;
+        private final int[] ends;
+        // the refresh that read it, see PolicyCoverageIndex
+        private final long stamp;
+
+        private Coverage(int[] starts, int[] ends, long stamp) {
+            this.starts = starts;
+            this.ends = ends;
+            this.stamp = stamp;
+        }
+
+        public boolean covers(LocalDate date) {
+            return covers(toDay(date));
+        }
+
+        public boolean covers(int day) {
+            int low = 0;
+            int high = starts.length - 1;
+            // find the last interval starting on or before the day
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (starts[mid] <= day) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return high >= 0 && ends[high] >= day;
+        }
+
+        public int size() {
+            return starts.length;
+        }
+
+        public int startDay(int i) {
+            return starts[i];
+        }
+
+        public int endDay(int i) {
+            return ends[i];
+        }
+
+        static Coverage empty(long stamp) {
+            return new Coverage(NO_DAYS, NO_DAYS, stamp);
+        }
+
+        static Coverage merge(Iterator<PolicyInterval> sortedByStart, int expectedSize, long stamp) {
+            Builder builder = new Builder(Math.max(expectedSize, 1));
+            sortedByStart.forEachRemaining(builder::add);
+            return builder.build(stamp);
+        }
+
+        static final class Builder {
+            private int[] starts;
+            private int[] ends;
+            private int size;
+
+            Builder(int capacity) {
+                this.starts = new int[capacity];
+                this.ends = new int[capacity];
+            }
+
+            // intervals must arrive sorted by start date
+            void add(PolicyInterval interval) {
+                if (interval.startDate() == null) {
+                    return;
+                }
+                int start = toDay(interval.startDate());
+                int end = interval.endDate() == null ? Integer.MAX_VALUE : toDay(interval.endDate());
+                if (end < start) {
+                    return;
+                }
+                if (size > 0 && (long) start <= (long) ends[size - 1] + 1) {
+                    ends[size - 1] = Math.max(ends[size - 1], end);
+                    return;
+                }
+                if (size == starts.length) {
+                    starts = Arrays.copyOf(starts, size * 2);
+                    ends = Arrays.copyOf(ends, size * 2);
+                }
+                starts[size] = start;
+                ends[size] = end;
+                size++;
+            }
+
+            Coverage build(long stamp) {
+                if (size == 0) {
+                    return empty(stamp);
+                }
+                return new Coverage(Arrays.copyOf(starts, size), Arrays.copyOf(ends, size), stamp);
+            }
+        }
+    }
+}
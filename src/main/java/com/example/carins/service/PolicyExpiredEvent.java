@@ -0,0 +1,6 @@
+package com.example.carins.service;
+
+import java.time.LocalDate;
+
+// emitted once when the day after a policy's end date begins
+public record PolicyExpiredEvent(Long policyId, Long carId, LocalDate endDate) {}
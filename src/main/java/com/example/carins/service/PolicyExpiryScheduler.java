@@ -0,0 +1,209 @@
+package com.example.carins.service;
+
+import com.example.carins.model.ExpiryCheckpoint;
+import com.example.carins.repo.ExpiryCheckpointRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.projection.ExpiredPolicy;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Emits one {@link PolicyExpiredEvent} per policy when the day after its end date begins.
+ * Policies ending within the next carins.expiry.horizon-days are held in a {@link PolicyExpiryWheel},
+ * fed by policy writes and by a keyset read of the end_date index as the horizon moves; the only timer
+ * is a wake-up at midnight, when the due slot is drained. A persisted (endDate, id) checkpoint records
+ * what has been emitted, so expiries missed while the application was down are caught up on start.
+ */
+@Component
+public class PolicyExpiryScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(PolicyExpiryScheduler.class);
+    static final String CHECKPOINT_NAME = "policy-expiry";
+
+    private final InsurancePolicyRepository policyRepository;
+    private final ExpiryCheckpointRepository checkpointRepository;
+    private final List<PolicyExpirySink> sinks;
+    private final TaskScheduler taskScheduler;
+    private final int batchSize;
+    private final int horizonDays;
+
+    private final PolicyExpiryWheel wheel = new PolicyExpiryWheel();
+    private final ReentrantLock runLock = new ReentrantLock();
+    private volatile ExpiryCheckpoint checkpoint;
+    private LocalDate loadedUntil;
+    private ScheduledFuture<?> midnightRun;
+
+    public PolicyExpiryScheduler(InsurancePolicyRepository policyRepository, ExpiryCheckpointRepository checkpointRepository,
+                                 List<PolicyExpirySink> sinks, TaskScheduler taskScheduler,
+                                 @Value("${carins.expiry.batch-size:500}") int batchSize,
+                                 @Value("${carins.expiry.horizon-days:7}") int horizonDays) {
+        this.policyRepository = policyRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.sinks = sinks;
+        this.taskScheduler = taskScheduler;
+        this.batchSize = batchSize;
+        this.horizonDays = horizonDays;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        LocalDate today = LocalDate.now();
+        runLock.lock();
+        try {
+            // first start: policies that ended before yesterday are considered already reported
+            checkpoint = checkpointRepository.findById(CHECKPOINT_NAME)
+                    .orElseGet(() -> checkpointRepository.save(
+                            new ExpiryCheckpoint(CHECKPOINT_NAME, today.minusDays(2), Long.MAX_VALUE)));
+            LocalDate reportedUntil = checkpoint.getLastEndDate();
+            int caughtUp = catchUp(today.minusDays(1));
+            if (caughtUp > 0) {
+                logger.info("Caught up on {} policy expiries missed since {}", caughtUp, reportedUntil);
+            }
+            loadedUntil = today.minusDays(1);
+            fireDue();
+        } finally {
+            runLock.unlock();
+        }
+        midnightRun = taskScheduler.schedule(this::fireDue, new CronTrigger("0 0 0 * * *"));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (midnightRun != null) {
+            midnightRun.cancel(false);
+        }
+    }
+
+    public void policyChangedAfterCommit(Long policyId, Long carId, LocalDate endDate) {
+        TransactionCallbacks.afterCommit(() -> {
+            if (track(new PolicyExpiredEvent(policyId, carId, endDate))) {
+                taskScheduler.schedule(this::fireDue, Instant.now());
+            }
+        });
+    }
+
+    public void policiesChangedAfterCommit(List<PolicyExpiredEvent> changes) {
+        TransactionCallbacks.afterCommit(() -> {
+            boolean anyDue = false;
+            for (PolicyExpiredEvent change : changes) {
+                anyDue |= track(change);
+            }
+            if (anyDue) {
+                taskScheduler.schedule(this::fireDue, Instant.now());
+            }
+        });
+    }
+
+    // emits every expiry that is due today; returns how many were emitted
+    public int fireDue() {
+        runLock.lock();
+        try {
+            if (checkpoint == null) {
+                return 0; // not started yet, start() drains the wheel
+            }
+            LocalDate today = LocalDate.now();
+            List<PolicyExpiredEvent> due = wheel.pollDue(today);
+            due.forEach(this::emit);
+            if (!due.isEmpty()) {
+                advanceCheckpoint(due.get(due.size() - 1));
+            }
+            extendHorizon(today);
+            return due.size();
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    public int pendingCount() {
+        return wheel.size();
+    }
+
+    // returns true when the tracked expiry is already due. Runs under runLock: a horizon read that saw the row
+    // before this write committed schedules what it read first, and this write then replaces it
+    private boolean track(PolicyExpiredEvent event) {
+        runLock.lock();
+        try {
+            LocalDate today = LocalDate.now();
+            boolean longExpired = event.endDate().isBefore(today.minusDays(1));
+            boolean beyondHorizon = event.endDate().isAfter(today.plusDays(horizonDays - 1L));
+            if (longExpired || beyondHorizon) {
+                // long expired ones are not reported; the horizon read picks up the far ones later
+                wheel.cancel(event.policyId());
+                return false;
+            }
+            wheel.schedule(event);
+            return event.endDate().isBefore(today);
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    private int catchUp(LocalDate upTo) {
+        int emitted = 0;
+        List<ExpiredPolicy> page;
+        do {
+            page = policyRepository.findExpiredAfter(checkpoint.getLastEndDate(), checkpoint.getLastPolicyId(), upTo, Limit.of(batchSize));
+            for (ExpiredPolicy policy : page) {
+                emit(new PolicyExpiredEvent(policy.id(), policy.carId(), policy.endDate()));
+            }
+            if (!page.isEmpty()) {
+                ExpiredPolicy last = page.get(page.size() - 1);
+                advanceCheckpoint(new PolicyExpiredEvent(last.id(), last.carId(), last.endDate()));
+                emitted += page.size();
+            }
+        } while (page.size() == batchSize);
+        return emitted;
+    }
+
+    // loads policies ending between the last loaded day and the end of the horizon into the wheel
+    private void extendHorizon(LocalDate today) {
+        LocalDate horizonEnd = today.plusDays(horizonDays - 1L);
+        LocalDate afterDate = loadedUntil.isBefore(today.minusDays(1)) ? today.minusDays(1) : loadedUntil;
+        long afterId = Long.MAX_VALUE;
+        List<ExpiredPolicy> page;
+        do {
+            page = policyRepository.findExpiredAfter(afterDate, afterId, horizonEnd, Limit.of(batchSize));
+            for (ExpiredPolicy policy : page) {
+                wheel.schedule(new PolicyExpiredEvent(policy.id(), policy.carId(), policy.endDate()));
+            }
+            if (!page.isEmpty()) {
+                afterDate = page.get(page.size() - 1).endDate();
+                afterId = page.get(page.size() - 1).id();
+            }
+        } while (page.size() == batchSize);
+        loadedUntil = horizonEnd;
+    }
+
+    private void advanceCheckpoint(PolicyExpiredEvent last) {
+        boolean ahead = last.endDate().isAfter(checkpoint.getLastEndDate())
+                || (last.endDate().equals(checkpoint.getLastEndDate()) && last.policyId() > checkpoint.getLastPolicyId());
+        if (ahead) {
+            checkpoint.setLastEndDate(last.endDate());
+            checkpoint.setLastPolicyId(last.policyId());
+            checkpoint = checkpointRepository.save(checkpoint);
+        }
+    }
+
+    private void emit(PolicyExpiredEvent event) {
+        for (PolicyExpirySink sink : sinks) {
+            try {
+                sink.policyExpired(event);
+            } catch (RuntimeException ex) {
+                logger.error("Expiry sink {} failed for policy {}", sink.getClass().getSimpleName(), event.policyId(), ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.carins.service;
+
+// receives policy expiries from PolicyExpiryScheduler; every sink bean in the context is notified
+public interface PolicyExpirySink {
+    void policyExpired(PolicyExpiredEvent event);
+}
@@ -0,0 +1,71 @@
+package com.example.carins.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Pending expiries bucketed by the day they become due (the day after the policy's end date).
+ * Only a bounded horizon of days is kept in memory; later expiries stay in the database,
+ * which acts as the outer level of the wheel and is read as the horizon advances.
+ */
+public final class PolicyExpiryWheel {
+
+    private static final Comparator<PolicyExpiredEvent> EXPIRY_ORDER =
+            Comparator.comparing(PolicyExpiredEvent::endDate).thenComparing(PolicyExpiredEvent::policyId);
+
+    private final NavigableMap<Long, Map<Long, PolicyExpiredEvent>> slots = new TreeMap<>();
+    private final Map<Long, Long> slotByPolicy = new HashMap<>();
+
+    public static long dueDay(LocalDate endDate) {
+        return endDate.toEpochDay() + 1;
+    }
+
+    // adds the expiry, replacing any pending one for the same policy
+    public synchronized void schedule(PolicyExpiredEvent event) {
+        cancel(event.policyId());
+        long day = dueDay(event.endDate());
+        slots.computeIfAbsent(day, d -> new LinkedHashMap<>()).put(event.policyId(), event);
+        slotByPolicy.put(event.policyId(), day);
+    }
+
+    public synchronized boolean cancel(Long policyId) {
+        Long day = slotByPolicy.remove(policyId);
+        if (day == null) {
+            return false;
+        }
+        Map<Long, PolicyExpiredEvent> slot = slots.get(day);
+        slot.remove(policyId);
+        if (slot.isEmpty()) {
+            slots.remove(day);
+        }
+        return true;
+    }
+
+    // removes and returns every expiry due on or before the given day, ordered by (endDate, policyId)
+    public synchronized List<PolicyExpiredEvent> pollDue(LocalDate today) {
+        NavigableMap<Long, Map<Long, PolicyExpiredEvent>> due = slots.headMap(today.toEpochDay(), true);
+        List<PolicyExpiredEvent> events = new ArrayList<>();
+        for (Map<Long, PolicyExpiredEvent> slot : due.values()) {
+            events.addAll(slot.values());
+        }
+        due.clear();
+        events.forEach(event -> slotByPolicy.remove(event.policyId()));
+        events.sort(EXPIRY_ORDER);
+        return events;
+    }
+
+    public synchronized LocalDate nextDueDay() {
+        return slots.isEmpty() ? null : LocalDate.ofEpochDay(slots.firstKey());
+    }
+
+    public synchronized int size() {
+        return slotByPolicy.size();
+    }
+}
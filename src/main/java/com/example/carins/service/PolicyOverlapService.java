@@ -0,0 +1,181 @@
+package com.example.carins.service;
+
+import com.example.carins.model.Car;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.projection.PolicySpan;
+import com.example.carins.web.dto.InsurancePolicyRequestDto;
+import com.example.carins.web.dto.PolicyOverlapDto;
+import com.example.carins.web.exception.PolicyOverlapException;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a car's policies from overlapping. A write is checked with one range seek on the (car_id, start_date,
+ * end_date) index, so its cost grows with the log of the table and the car's nearby policies, not with the fleet.
+ * In reject mode the check also bumps the car's version, so two concurrent writes to the same car's policies cannot
+ * both pass it: the later commit fails its optimistic check and is retried or reported. Bulk ingestion checks a
+ * whole batch with one query over its cars, see {@link #checkBatch}.
+ * <p>
+ * carins.policies.overlap-mode is reject or flag; flag lets the write through and reports the overlaps alongside it.
+ */
+@Service
+@Timed("carins.service")
+public class PolicyOverlapService {
+    private static final Logger logger = LoggerFactory.getLogger(PolicyOverlapService.class);
+    // ids named in a rejection or a flag; the audit lists every overlap
+    private static final int REPORTED_OVERLAPS = 20;
+
+    public enum Mode { REJECT, FLAG }
+
+    private final InsurancePolicyRepository policyRepository;
+    private final CarRepository carRepository;
+    private final EntityManager entityManager;
+    private final Mode mode;
+
+    public PolicyOverlapService(InsurancePolicyRepository policyRepository, CarRepository carRepository, EntityManager entityManager,
+                                @Value("${carins.policies.overlap-mode:flag}") String mode) {
+        this.policyRepository = policyRepository;
+        this.carRepository = carRepository;
+        this.entityManager = entityManager;
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    // policyId is the policy being written (null when it is new), so it never overlaps itself; runs in the write's transaction
+    public List<Long> check(Car car, Long policyId, LocalDate startDate, LocalDate endDate) {
+        List<Long> overlaps = policyRepository.findOverlappingIds(car.getId(), policyId != null ? policyId : 0L,
+                startDate, endDate, Limit.of(REPORTED_OVERLAPS));
+        if (mode == Mode.FLAG) {
+            if (!overlaps.isEmpty()) {
+                logger.warn("{} for car {} ({} to {}) overlaps policies {}", policyId != null ? "Policy " + policyId : "New policy",
+                        car.getId(), startDate, endDate, overlaps);
+            }
+            return overlaps;
+        }
+        if (!overlaps.isEmpty()) {
+            throw new PolicyOverlapException(car.getId(), overlaps);
+        }
+        entityManager.lock(car, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+        return overlaps;
+    }
+
+    // new policies of one batch, checked against their cars' policies (one query for all of them) and against the
+    // batch's earlier policies for the same car. Returns, per policy, why it must not be written, or null.
+    // In reject mode the cars' versions are bumped before the read, so a concurrent single write either waits for
+    // this batch and then sees it, or fails its own version check; in flag mode every policy is kept and overlaps
+    // are logged like single writes. Runs in the batch's transaction
+    public List<String> checkBatch(List<InsurancePolicyRequestDto> policies) {
+        if (policies.isEmpty()) {
+            return List.of();
+        }
+        TreeSet<Long> carIds = new TreeSet<>();
+        LocalDate from = LocalDate.MAX;
+        LocalDate to = LocalDate.MIN;
+        for (InsurancePolicyRequestDto policy : policies) {
+            carIds.add(policy.carId());
+            from = policy.startDate().isBefore(from) ? policy.startDate() : from;
+            to = policy.endDate().isAfter(to) ? policy.endDate() : to;
+        }
+        if (mode == Mode.REJECT) {
+            carRepository.incrementVersions(carIds);
+        }
+        Map<Long, List<PolicySpan>> existingByCar = new HashMap<>();
+        for (PolicySpan span : policyRepository.findSpansByCarIds(carIds, from, to)) {
+            existingByCar.computeIfAbsent(span.carId(), id -> new ArrayList<>()).add(span);
+        }
+
+        Map<Long, List<InsurancePolicyRequestDto>> keptByCar = new HashMap<>();
+        List<String> problems = new ArrayList<>(policies.size());
+        for (InsurancePolicyRequestDto policy : policies) {
+            List<Long> overlaps = new ArrayList<>();
+            for (PolicySpan span : existingByCar.getOrDefault(policy.carId(), List.of())) {
+                if (overlaps.size() < REPORTED_OVERLAPS && overlap(span.startDate(), span.endDate(), policy)) {
+                    overlaps.add(span.id());
+                }
+            }
+            List<InsurancePolicyRequestDto> kept = keptByCar.computeIfAbsent(policy.carId(), id -> new ArrayList<>());
+            int inBatch = 0;
+            for (InsurancePolicyRequestDto earlier : kept) {
+                if (overlap(earlier.startDate(), earlier.endDate(), policy)) {
+                    inBatch++;
+                }
+            }
+            if (overlaps.isEmpty() && inBatch == 0) {
+                kept.add(policy);
+                problems.add(null);
+            } else if (mode == Mode.FLAG) {
+                logger.warn("New policy for car {} ({} to {}) overlaps policies {} and {} earlier policies of its ingestion batch",
+                        policy.carId(), policy.startDate(), policy.endDate(), overlaps, inBatch);
+                kept.add(policy);
+                problems.add(null);
+            } else {
+                problems.add(rejection(policy.carId(), overlaps, inBatch));
+            }
+        }
+        return problems;
+    }
+
+    private static boolean overlap(LocalDate startDate, LocalDate endDate, InsurancePolicyRequestDto policy) {
+        return !startDate.isAfter(policy.endDate()) && !endDate.isBefore(policy.startDate());
+    }
+
+    private static String rejection(Long carId, List<Long> overlaps, int inBatch) {
+        if (inBatch == 0) {
+            return new PolicyOverlapException(carId, overlaps).getMessage();
+        }
+        String batch = inBatch + " earlier policies of car " + carId + " in the same ingestion batch";
+        return overlaps.isEmpty() ? "Policy interval overlaps " + batch
+                : new PolicyOverlapException(carId, overlaps).getMessage() + " and " + batch;
+    }
+
+    // one pass over every policy in (car, start date) order; a queue ordered by end date holds the policies
+    // that are still running at the current start date, and each of them overlaps the policy being visited
+    @Transactional(readOnly = true)
+    public void forEachOverlap(Consumer<PolicyOverlapDto> sink) {
+        PriorityQueue<PolicySpan> running = new PriorityQueue<>(Comparator.comparing(PolicySpan::endDate));
+        Long[] currentCar = new Long[1];
+        try (Stream<PolicySpan> spans = policyRepository.streamAllSpans()) {
+            spans.forEach(span -> {
+                if (!span.carId().equals(currentCar[0])) {
+                    running.clear();
+                    currentCar[0] = span.carId();
+                }
+                while (!running.isEmpty() && running.peek().endDate().isBefore(span.startDate())) {
+                    running.poll();
+                }
+                if (!running.isEmpty()) {
+                    List<PolicySpan> overlapping = new ArrayList<>(running);
+                    overlapping.sort(Comparator.comparing(PolicySpan::startDate).thenComparing(PolicySpan::id));
+                    for (PolicySpan other : overlapping) {
+                        LocalDate end = other.endDate().isBefore(span.endDate()) ? other.endDate() : span.endDate();
+                        sink.accept(new PolicyOverlapDto(span.carId(), span.id(), other.id(), span.startDate(), end));
+                    }
+                }
+                running.add(span);
+            });
+        }
+    }
+}
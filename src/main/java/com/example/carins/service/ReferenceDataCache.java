@@ -0,0 +1,78 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.OwnerRepository;
+import com.example.carins.web.dto.CarDto;
+import com.example.carins.web.dto.OwnerDto;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Read-through lookups of cars and owners for the write paths, which only need to know a row exists
+ * (plus a few columns) before taking a JPA reference to it.
+ * Only hits are cached: a missing car or owner is looked up again next time, so a row created after a miss
+ * is never hidden by a cached "not found". The caches are transaction aware, so evictions made inside
+ * a transaction apply once it commits.
+ */
+@Component
+public class ReferenceDataCache {
+    public static final String CARS = "cars";
+    public static final String CAR_IDS_BY_VIN = "carIdsByVin";
+    public static final String OWNERS = "owners";
+
+    private final CarRepository carRepository;
+    private final OwnerRepository ownerRepository;
+    private final CacheManager cacheManager;
+
+    public ReferenceDataCache(CarRepository carRepository, OwnerRepository ownerRepository, CacheManager cacheManager) {
+        this.carRepository = carRepository;
+        this.ownerRepository = ownerRepository;
+        this.cacheManager = cacheManager;
+    }
+
+    // returns null when the car does not exist
+    @Cacheable(cacheNames = CARS, unless = "#result == null")
+    public CarDto findCar(Long carId) {
+        return carRepository.findCarDtoById(carId).orElse(null);
+    }
+
+    // returns null when no car has the VIN
+    @Cacheable(cacheNames = CAR_IDS_BY_VIN, unless = "#result == null")
+    public Long findCarIdByVin(String vin) {
+        return carRepository.findIdByVin(vin).orElse(null);
+    }
+
+    // returns null when the owner does not exist
+    @Cacheable(cacheNames = OWNERS, unless = "#result == null")
+    public OwnerDto findOwner(Long ownerId) {
+        return ownerRepository.findOwnerDtoById(ownerId).orElse(null);
+    }
+
+    public void evictCar(Long carId, String vin) {
+        cache(CARS).evict(carId);
+        cache(CAR_IDS_BY_VIN).evict(vin);
+    }
+
+    public void evictCarsByVin(Collection<String> vins) {
+        Cache byVin = cache(CAR_IDS_BY_VIN);
+        vins.forEach(byVin::evict);
+    }
+
+    // cars are cached with their owner's name and email
+    public void evictOwner(Long ownerId) {
+        cache(OWNERS).evict(ownerId);
+        cache(CARS).clear();
+    }
+
+    public void clear() {
+        cacheManager.getCacheNames().forEach(name -> cache(name).clear());
+    }
+
+    private Cache cache(String name) {
+        return cacheManager.getCache(name);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.carins.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Change counters behind the ETags of the car reads: the fleet version moves whenever cars are added, and a car's
+ * version whenever one of its policies or claims is written. Counters move after commit and are read before the
+ * data they describe, so a tag may be older than its body (costing one extra full response) but never newer.
+ * <p>
+ * The counters live in memory, so every tag carries an epoch that changes on restart and whenever the tables are
+ * rewritten behind the application's back; tags handed out before that never match again.
+ */
+@Component
+public class ResourceVersions {
+    private final AtomicLong fleetVersion = new AtomicLong();
+    private final Map<Long, Long> carVersions = new ConcurrentHashMap<>();
+    private volatile String epoch = newEpoch();
+
+    public String fleetTag() {
+        return "\"cars-" + epoch + "-" + fleetVersion.get() + "\"";
+    }
+
+    public String carTag(Long carId) {
+        return "\"car-" + carId + "-" + epoch + "-" + carVersions.getOrDefault(carId, 0L) + "\"";
+    }
+
+    public void carsAddedAfterCommit() {
+        TransactionCallbacks.afterCommit(fleetVersion::incrementAndGet);
+    }
+
+    public void carChangedAfterCommit(Long carId) {
+        TransactionCallbacks.afterCommit(() -> carVersions.merge(carId, 1L, Long::sum));
+    }
+
+    public void carsChangedAfterCommit(Collection<Long> carIds) {
+        if (carIds.isEmpty()) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> carIds.forEach(carId -> carVersions.merge(carId, 1L, Long::sum)));
+    }
+
+    public void invalidateAll() {
+        epoch = newEpoch();
+    }
+
+    private static String newEpoch() {
+        return Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.carins.service;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * K-way merge of iterators that are each already sorted by the given order.
+ * Only the current head of every source is held in memory; on ties the earlier source wins.
+ */
+final class SortedMergeIterator<T> implements Iterator<T> {
+
+    private record Head<T>(T value, int source) {}
+
+    private final List<? extends Iterator<? extends T>> sources;
+    private final PriorityQueue<Head<T>> heads;
+
+    SortedMergeIterator(List<? extends Iterator<? extends T>> sources, Comparator<? super T> order) {
+        this.sources = sources;
+        Comparator<Head<T>> byValue = (a, b) -> order.compare(a.value(), b.value());
+        this.heads = new PriorityQueue<>(Math.max(sources.size(), 1), byValue.thenComparingInt(Head::source));
+        for (int i = 0; i < sources.size(); i++) {
+            advance(i);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        Head<T> head = heads.poll();
+        if (head == null) {
+            throw new NoSuchElementException();
+        }
+        advance(head.source());
+        return head.value();
+    }
+
+    private void advance(int source) {
+        Iterator<? extends T> iterator = sources.get(source);
+        if (iterator.hasNext()) {
+            heads.add(new Head<>(iterator.next(), source));
+        }
+    }
+}
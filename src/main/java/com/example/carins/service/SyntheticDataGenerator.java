@@ -0,0 +1,326 @@
+package com.example.carins.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+/**
+ * Appends a large, reproducible dataset to the database with plain JDBC batches, bypassing JPA.
+ * <p>
+ * The distributions are meant to look like a real book of business: fleets per owner follow a power law
+ * (a few owners hold most cars), policies are renewed back to back with occasional gaps and overlaps, and
+ * claim counts per car are Pareto distributed, so some cars have very long histories. Each car draws from
+ * its own random stream derived from the seed, so the same spec always produces the same rows.
+ */
+@Component
+public class SyntheticDataGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    public static final LocalDate FIRST_DAY = LocalDate.of(2015, 1, 1);
+    public static final LocalDate LAST_DAY = LocalDate.of(2026, 12, 31);
+
+    private static final int BATCH_SIZE = 5_000;
+    // the increment of the entities' pooled sequences (their allocationSize)
+    private static final int SEQUENCE_INCREMENT = 50;
+    private static final int MAX_CLAIMS_PER_CAR = 2_000;
+    private static final String[] MAKES = {"Dacia", "VW", "Skoda", "Renault", "Ford", "Toyota", "BMW", "Honda", "Hyundai", "Opel"};
+    private static final String[] MODELS = {"Logan", "Golf", "Octavia", "Clio", "Focus", "Corolla", "320d", "Civic", "i30", "Astra"};
+    private static final String[] PROVIDERS = {"Allianz", "Groupama", "Omniasig", "Generali", "Uniqa", "Asirom", "Grawe"};
+    private static final String[] CLAIMS = {"Rear-end collision", "Broken window", "Hail damage", "Scratched door",
+            "Parking damage", "Stolen mirror", "Flooded engine", "Windshield crack", "Side collision", "Vandalism"};
+
+    private final JdbcTemplate jdbc;
+
+    public SyntheticDataGenerator(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * @param policiesPerCar average number of policies per car
+     * @param claimsPerCar   average number of claims per car (Pareto, so the median is much lower)
+     * @param overlapRate    share of renewals that start before the previous policy ends
+     */
+    public record Spec(int owners, int cars, double policiesPerCar, double claimsPerCar, double overlapRate, long seed) {
+        public Spec {
+            if (owners < 1 || cars < 0 || policiesPerCar < 0 || claimsPerCar < 0 || overlapRate < 0 || overlapRate > 1) {
+                throw new IllegalArgumentException("Invalid synthetic data spec: " + this);
+            }
+        }
+    }
+
+    public record Result(long firstOwnerId, long firstCarId, int owners, int cars, long policies, long overlappingPolicies,
+                         long claims, long elapsedMillis) {
+        public long rows() {
+            return owners + cars + policies + claims;
+        }
+    }
+
+    // synchronized because reserving ids temporarily changes the sequence increments
+    public synchronized Result generate(Spec spec) {
+        long startNanos = System.nanoTime();
+        // a dry run over the same random streams sizes the id ranges, which are all reserved before the first insert,
+        // so ids handed out to the running application meanwhile never collide with generated rows
+        Counts planned = plan(spec);
+        long firstOwnerId = reserveOwnerIds(spec.owners());
+        long firstCarId = reserve("car_seq", spec.cars());
+        long firstPolicyId = reserve("policy_seq", planned.policies);
+        long firstClaimId = reserve("claim_seq", planned.claims);
+
+        Counts counts = jdbc.execute((ConnectionCallback<Counts>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                insertOwners(connection, spec, firstOwnerId);
+                return insertFleet(connection, spec, firstOwnerId, firstCarId, firstPolicyId, firstClaimId);
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+
+        Result result = new Result(firstOwnerId, firstCarId, spec.owners(), spec.cars(), counts.policies, counts.overlaps,
+                counts.claims, (System.nanoTime() - startNanos) / 1_000_000);
+        logger.info("Generated {} rows ({} owners, {} cars, {} policies of which {} overlapping, {} claims) in {} ms",
+                result.rows(), result.owners(), result.cars(), result.policies(), result.overlappingPolicies(),
+                result.claims(), result.elapsedMillis());
+        return result;
+    }
+
+    private void insertOwners(Connection connection, Spec spec, long firstOwnerId) throws SQLException {
+        try (PreparedStatement owners = connection.prepareStatement("INSERT INTO owner (id, name, email) VALUES (?, ?, ?)")) {
+            Batch batch = new Batch(connection, owners);
+            for (int i = 0; i < spec.owners(); i++) {
+                long id = firstOwnerId + i;
+                owners.setLong(1, id);
+                owners.setString(2, "Owner " + id);
+                owners.setString(3, "owner" + id + "@example.com");
+                batch.add();
+            }
+            batch.flush();
+            connection.commit();
+        }
+    }
+
+    private Counts insertFleet(Connection connection, Spec spec, long firstOwnerId, long firstCarId,
+                               long firstPolicyId, long firstClaimId) throws SQLException {
+        try (PreparedStatement cars = connection.prepareStatement(
+                     "INSERT INTO car (id, vin, make, model, year_of_manufacture, owner_id) VALUES (?, ?, ?, ?, ?, ?)");
+             PreparedStatement policies = connection.prepareStatement(
+                     "INSERT INTO insurancepolicy (id, car_id, provider, start_date, end_date) VALUES (?, ?, ?, ?, ?)");
+             PreparedStatement claims = connection.prepareStatement(
+                     "INSERT INTO claim (id, car_id, claim_date, description, amount) VALUES (?, ?, ?, ?, ?)")) {
+            FleetInserts inserts = new FleetInserts(connection, cars, policies, claims, firstPolicyId, firstClaimId);
+            Counts counts = walkFleet(spec, firstOwnerId, firstCarId, inserts);
+            inserts.claimBatch.flush();
+            connection.commit();
+            return counts;
+        }
+    }
+
+    private Counts plan(Spec spec) {
+        try {
+            return walkFleet(spec, 0, 0, new FleetSink() {});
+        } catch (SQLException ex) {
+            throw new IllegalStateException(ex); // the default sink does not touch the database
+        }
+    }
+
+    // draws every car, policy and claim from the spec's random streams; the sink decides what happens to them
+    private Counts walkFleet(Spec spec, long firstOwnerId, long firstCarId, FleetSink sink) throws SQLException {
+        Counts counts = new Counts();
+        int firstDay = (int) FIRST_DAY.toEpochDay();
+        int lastDay = (int) LAST_DAY.toEpochDay();
+        for (int i = 0; i < spec.cars(); i++) {
+            long carId = firstCarId + i;
+            SplittableRandom random = new SplittableRandom(mix(spec.seed(), i));
+
+            // power-law fleet sizes: u^3 piles most cars onto the lowest owner ids
+            double u = random.nextDouble();
+            long ownerId = firstOwnerId + (long) (spec.owners() * u * u * u);
+            int model = random.nextInt(MAKES.length);
+            int yearOfManufacture = 1995 + random.nextInt(31);
+            sink.car(carId, ownerId, model, yearOfManufacture);
+
+            int policyCount = spec.policiesPerCar() == 0 ? 0
+                    : Math.max(1, (int) Math.round(spec.policiesPerCar() * (0.5 + random.nextDouble())));
+            int start = Math.max(firstDay, (int) LocalDate.of(yearOfManufacture, 1, 1).toEpochDay()) + random.nextInt(365);
+            for (int p = 0; p < policyCount && start <= lastDay; p++) {
+                int end = start + (random.nextInt(4) == 0 ? 181 : 364);
+                counts.policies++;
+                sink.policy(carId, PROVIDERS[random.nextInt(PROVIDERS.length)], start, end);
+
+                double next = random.nextDouble();
+                if (next < spec.overlapRate()) {
+                    start = end - random.nextInt(1, 60);
+                    counts.overlaps++;
+                } else if (next < spec.overlapRate() + 0.2) {
+                    start = end + 1 + random.nextInt(1, 120);
+                } else {
+                    start = end + 1;
+                }
+            }
+
+            int claimCount = paretoCount(random, spec.claimsPerCar());
+            for (int c = 0; c < claimCount; c++) {
+                counts.claims++;
+                int day = random.nextInt(firstDay, lastDay + 1);
+                String description = CLAIMS[random.nextInt(CLAIMS.length)];
+                // log-normal amounts around a few hundred, with a long tail
+                long cents = Math.round(Math.exp(6.2 + 0.9 * random.nextGaussian()) * 100);
+                sink.claim(carId, day, description, cents);
+            }
+        }
+        return counts;
+    }
+
+    // Pareto with shape 1.5, scaled so the mean is the requested average
+    private static int paretoCount(SplittableRandom random, double mean) {
+        if (mean == 0) {
+            return 0;
+        }
+        double scale = mean / 3;
+        double value = scale / Math.pow(1 - random.nextDouble(), 1 / 1.5) - scale;
+        return (int) Math.min(MAX_CLAIMS_PER_CAR, Math.round(value * 1.5));
+    }
+
+    private static long mix(long seed, long i) {
+        long z = seed + (i + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Hibernate's pooled-lo optimizer treats a fetched value v as the block [v, v + 49]. One NEXT VALUE with the
+    // increment raised to the (rounded up) size moves the following fetch to v + size, which leaves
+    // [v, v + size - 1] to the generator: blocks fetched before it end below v, blocks fetched after it start above
+    private long reserve(String sequence, long count) {
+        long size = Math.max(1, (count + SEQUENCE_INCREMENT - 1) / SEQUENCE_INCREMENT) * SEQUENCE_INCREMENT;
+        jdbc.execute("ALTER SEQUENCE " + sequence + " INCREMENT BY " + size);
+        try {
+            return jdbc.queryForObject("SELECT NEXT VALUE FOR " + sequence, Long.class);
+        } finally {
+            jdbc.execute("ALTER SEQUENCE " + sequence + " INCREMENT BY " + SEQUENCE_INCREMENT);
+        }
+    }
+
+    // the identity is moved past the range before any row is inserted; the application never creates owners itself
+    private long reserveOwnerIds(int owners) {
+        long firstOwnerId = jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM owner", Long.class);
+        jdbc.execute("ALTER TABLE owner ALTER COLUMN id RESTART WITH " + (firstOwnerId + owners));
+        return firstOwnerId;
+    }
+
+    private static final class Counts {
+        long policies;
+        long overlaps;
+        long claims;
+    }
+
+    private interface FleetSink {
+        default void car(long carId, long ownerId, int model, int yearOfManufacture) throws SQLException {}
+
+        default void policy(long carId, String provider, int startDay, int endDay) throws SQLException {}
+
+        default void claim(long carId, int day, String description, long amountCents) throws SQLException {}
+    }
+
+    private static final class FleetInserts implements FleetSink {
+        private final PreparedStatement cars;
+        private final PreparedStatement policies;
+        private final PreparedStatement claims;
+        private final Batch carBatch;
+        private final Batch policyBatch;
+        private final Batch claimBatch;
+        private long nextPolicyId;
+        private long nextClaimId;
+
+        FleetInserts(Connection connection, PreparedStatement cars, PreparedStatement policies, PreparedStatement claims,
+                     long firstPolicyId, long firstClaimId) {
+            this.cars = cars;
+            this.policies = policies;
+            this.claims = claims;
+            // flushed parent first, so foreign keys always point at rows already sent
+            this.carBatch = new Batch(connection, cars);
+            this.policyBatch = new Batch(connection, policies, carBatch);
+            this.claimBatch = new Batch(connection, claims, policyBatch);
+            this.nextPolicyId = firstPolicyId;
+            this.nextClaimId = firstClaimId;
+        }
+
+        @Override
+        public void car(long carId, long ownerId, int model, int yearOfManufacture) throws SQLException {
+            cars.setLong(1, carId);
+            cars.setString(2, String.format("SYN%014d", carId));
+            cars.setString(3, MAKES[model]);
+            cars.setString(4, MODELS[model]);
+            cars.setInt(5, yearOfManufacture);
+            cars.setLong(6, ownerId);
+            carBatch.add();
+        }
+
+        @Override
+        public void policy(long carId, String provider, int startDay, int endDay) throws SQLException {
+            policies.setLong(1, nextPolicyId++);
+            policies.setLong(2, carId);
+            policies.setString(3, provider);
+            policies.setDate(4, Date.valueOf(LocalDate.ofEpochDay(startDay)));
+            policies.setDate(5, Date.valueOf(LocalDate.ofEpochDay(endDay)));
+            policyBatch.add();
+        }
+
+        @Override
+        public void claim(long carId, int day, String description, long amountCents) throws SQLException {
+            claims.setLong(1, nextClaimId++);
+            claims.setLong(2, carId);
+            claims.setDate(3, Date.valueOf(LocalDate.ofEpochDay(day)));
+            claims.setString(4, description);
+            claims.setBigDecimal(5, BigDecimal.valueOf(amountCents, 2));
+            claimBatch.add();
+        }
+    }
+
+    // a statement batch that sends and commits every BATCH_SIZE rows, flushing its parent batch first
+    private static final class Batch {
+        private final Connection connection;
+        private final PreparedStatement statement;
+        private final Batch parent;
+        private int size;
+
+        Batch(Connection connection, PreparedStatement statement) {
+            this(connection, statement, null);
+        }
+
+        Batch(Connection connection, PreparedStatement statement, Batch parent) {
+            this.connection = connection;
+            this.statement = statement;
+            this.parent = parent;
+        }
+
+        void add() throws SQLException {
+            statement.addBatch();
+            if (++size == BATCH_SIZE) {
+                flush();
+                connection.commit();
+            }
+        }
+
+        void flush() throws SQLException {
+            if (parent != null) {
+                parent.flush();
+            }
+            if (size > 0) {
+                statement.executeBatch();
+                size = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.carins.service;
+
+import com.example.carins.web.dto.InsurancePolicyResponseDto;
+
+import java.util.List;
+
+// version is the optimistic lock value the policy was read or written with; it is served as the policy's ETag.
+// overlappingPolicyIds are the car's other policies the written interval overlaps (allowed in flag mode)
+public record VersionedPolicy(InsurancePolicyResponseDto policy, long version, List<Long> overlappingPolicyIds) {}
@@ -0,0 +1,36 @@
+package com.example.carins.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+// posts each expiry as JSON to carins.expiry.webhook.url; delivery is best effort, failures are only logged
+@Component
+@ConditionalOnProperty("carins.expiry.webhook.url")
+public class WebhookExpirySink implements PolicyExpirySink {
+    private static final Logger logger = LoggerFactory.getLogger(WebhookExpirySink.class);
+
+    private final RestClient restClient;
+
+    public WebhookExpirySink(RestClient.Builder restClientBuilder, @Value("${carins.expiry.webhook.url}") String url) {
+        this.restClient = restClientBuilder.baseUrl(url).build();
+    }
+
+    @Override
+    public void policyExpired(PolicyExpiredEvent event) {
+        try {
+            restClient.post()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(event)
+                    .retrieve()
+                    .toBodilessEntity();
+        } catch (RestClientException ex) {
+            logger.warn("Could not deliver expiry of policy {} to webhook: {}", event.policyId(), ex.getMessage());
+        }
+    }
+}
@@ -1,53 +1,187 @@
 package com.example.carins.web.controller;
 
-import com.example.carins.model.Car;
+import com.example.carins.service.CarHistoryCursor;
+import com.example.carins.service.CarHistoryPage;
+import com.example.carins.service.CarHistoryQuery;
+import com.example.carins.service.CarHistoryRowPage;
+import com.example.carins.service.CarHistoryService;
+import com.example.carins.service.CarImportService;
 import com.example.carins.service.CarService;
+import com.example.carins.service.ResourceVersions;
 import com.example.carins.web.dto.*;
 import com.example.carins.web.exception.InvalidDateException;
+import com.example.carins.web.json.FastJsonWriters;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api")
 public class CarController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 100;
 
     private final CarService service;
+    private final CarHistoryService historyService;
+    private final CarImportService importService;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter validityResultWriter;
+    private final ResourceVersions versions;
+    private final ContentNegotiationManager contentNegotiation;
+    private final CacheControl carsCacheControl;
+    private final CacheControl historyCacheControl;
+    private final CacheControl validityCacheControl;
+    private final boolean fastCars;
+    private final boolean fastHistory;
+    private final boolean fastValidity;
 
-    public CarController(CarService service) {
+    public CarController(CarService service, CarHistoryService historyService, CarImportService importService,
+                         ObjectMapper objectMapper, ResourceVersions versions, ContentNegotiationManager contentNegotiation,
+                         @Value("${carins.http.cache.cars-max-age:60s}") Duration carsMaxAge,
+                         @Value("${carins.http.cache.history-max-age:0s}") Duration historyMaxAge,
+                         @Value("${carins.http.cache.validity-max-age:60s}") Duration validityMaxAge,
+                         @Value("${carins.json.fast-writers:cars,history,validity}") Set<String> fastWriters) {
         this.service = service;
+        this.historyService = historyService;
+        this.importService = importService;
+        this.objectMapper = objectMapper;
+        this.versions = versions;
+        this.contentNegotiation = contentNegotiation;
+        this.carsCacheControl = cacheControl(carsMaxAge);
+        this.historyCacheControl = cacheControl(historyMaxAge);
+        this.validityCacheControl = cacheControl(validityMaxAge);
+        // endpoints answered by FastJsonWriters instead of Jackson's bean serializers; the JSON is the same
+        this.fastCars = fastWriters.contains("cars");
+        this.fastHistory = fastWriters.contains("history");
+        this.fastValidity = fastWriters.contains("validity");
+        this.validityResultWriter = objectMapper.writerFor(InsuranceValidityResultDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
+    // without a limit the whole fleet is returned; with one, X-Next-Cursor carries the afterId of the next page.
+    // An If-None-Match holding the current fleet ETag is answered with 304 before anything is read
     @GetMapping("/cars")
-    public List<CarDto> getCars() {
-        return service.listCars().stream().map(this::toDto).toList();
+    public ResponseEntity<?> getCars(@RequestParam(required = false) Long afterId,
+                                     @RequestParam(required = false) Integer limit,
+                                     WebRequest request) {
+        String etag = representationTag(versions.fleetTag(), request);
+        if (request.checkNotModified(etag)) {
+            return notModified(etag, carsCacheControl);
+        }
+        if (limit == null && afterId == null) {
+            List<CarDto> cars = service.listCars();
+            return ResponseEntity.ok().eTag(etag).cacheControl(carsCacheControl).varyBy(HttpHeaders.ACCEPT)
+                    .body(fastCars ? FastJsonWriters.cars(cars) : cars);
+        }
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        List<CarDto> page = service.listCars(afterId != null ? afterId : 0L, pageSize);
+        var response = ResponseEntity.ok().eTag(etag).cacheControl(carsCacheControl).varyBy(HttpHeaders.ACCEPT);
+        if (page.size() == pageSize) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.get(page.size() - 1).id()));
+        }
+        return response.body(fastCars ? FastJsonWriters.cars(page) : page);
     }
 
-    @GetMapping("/cars/{carId}/insurance-valid")
-    public ResponseEntity<?> isInsuranceValid(@PathVariable Long carId, @RequestParam String date) {
-        LocalDate reqDate;
+    @GetMapping(value = "/cars", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCars(@RequestParam(required = false) Long afterId) {
+        long cursor = afterId != null ? afterId : 0L;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(NdjsonStreams.body(objectMapper, CarDto.class, sink -> service.forEachCar(cursor, sink)));
+    }
 
-        try {
-            reqDate = LocalDate.parse(date);
-        } catch (Exception ex) {
-            throw new InvalidDateException(date);
+    @GetMapping("/cars/{carId}/insurance-valid")
+    public ResponseEntity<?> isInsuranceValid(@PathVariable Long carId, @RequestParam String date, WebRequest request) {
+        LocalDate reqDate = service.parseValidityDate(date);
+        String etag = representationTag(versions.carTag(carId), request);
+        if (request.checkNotModified(etag)) {
+            return notModified(etag, validityCacheControl);
         }
 
-        if (reqDate.getYear() < 1900 || reqDate.getYear() > 2100) {
-            throw new InvalidDateException("Impossible date provided: ", date);
+        boolean valid = service.isInsuranceValid(carId, reqDate);
+        var response = ResponseEntity.ok().eTag(etag).cacheControl(validityCacheControl).varyBy(HttpHeaders.ACCEPT);
+        if (fastValidity) {
+            return response.body(FastJsonWriters.validity(carId, reqDate, valid));
         }
+        return response.body(new InsuranceValidityResponse(carId, reqDate.toString(), valid));
+    }
 
-        boolean valid = service.isInsuranceValid(carId, reqDate);
-        return ResponseEntity.ok(new InsuranceValidityResponse(carId, reqDate.toString(), valid));
+    // results are streamed as a JSON array in the same order as the submitted checks
+    @PostMapping("/cars/insurance-valid:batch")
+    public ResponseEntity<StreamingResponseBody> isInsuranceValidBatch(@RequestBody List<InsuranceValidityCheckDto> checks) {
+        Iterator<InsuranceValidityResultDto> results = service.checkInsuranceValidity(checks).iterator();
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                while (results.hasNext()) {
+                    validityResultWriter.writeValue(generator, results.next());
+                }
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
+    // optional from/to (inclusive, ISO dates), limit and cursor; X-Next-Cursor is set while more events may follow
     @GetMapping("/cars/{carId}/history")
-    public List<CarHistoryDto> getCarHistory(@PathVariable Long carId){
-        return service.getCarHistory(carId);
+    public ResponseEntity<?> getCarHistory(@PathVariable Long carId,
+                                           @RequestParam(required = false) String from,
+                                           @RequestParam(required = false) String to,
+                                           @RequestParam(required = false) Integer limit,
+                                           @RequestParam(required = false) String cursor,
+                                           WebRequest request) {
+        CarHistoryQuery query = historyQuery(from, to, limit, cursor);
+        historyService.validate(carId, query);
+        String etag = representationTag(versions.carTag(carId), request);
+        if (request.checkNotModified(etag)) {
+            return notModified(etag, historyCacheControl);
+        }
+        var response = ResponseEntity.ok().eTag(etag).cacheControl(historyCacheControl).varyBy(HttpHeaders.ACCEPT);
+        if (fastHistory) {
+            CarHistoryRowPage page = historyService.getHistoryRows(carId, query);
+            if (page.nextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.nextCursor().toString());
+            }
+            return response.body(FastJsonWriters.history(page.rows()));
+        }
+        CarHistoryPage page = historyService.getHistory(carId, query);
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor().toString());
+        }
+        return response.body(page.events());
+    }
+
+    @GetMapping(value = "/cars/{carId}/history", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCarHistory(@PathVariable Long carId,
+                                                                  @RequestParam(required = false) String from,
+                                                                  @RequestParam(required = false) String to,
+                                                                  @RequestParam(required = false) Integer limit,
+                                                                  @RequestParam(required = false) String cursor) {
+        CarHistoryQuery query = historyQuery(from, to, limit, cursor);
+        historyService.validate(carId, query);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(NdjsonStreams.body(objectMapper, CarHistoryDto.class, sink -> historyService.streamHistory(carId, query, sink)));
     }
 
     @PostMapping("/cars")
@@ -57,12 +191,62 @@ public class CarController {
 
     }
 
-    private CarDto toDto(Car c) {
-        var o = c.getOwner();
-        return new CarDto(c.getId(), c.getVin(), c.getMake(), c.getModel(), c.getYearOfManufacture(),
-                o != null ? o.getId() : null,
-                o != null ? o.getName() : null,
-                o != null ? o.getEmail() : null);
+    // one result per submitted row; rejected rows do not prevent the others from being created
+    @PostMapping(value = "/cars/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<CarImportResultDto> importCars(@RequestBody List<CarCreateRequestDto> cars) {
+        return importService.importCars(cars);
+    }
+
+    @PostMapping(value = "/cars/bulk", consumes = "text/csv")
+    public List<CarImportResultDto> importCarsCsv(@RequestBody String csv) {
+        return importService.importCsv(csv);
+    }
+
+    // JSON and CBOR bodies of one version differ byte for byte, so each format gets its own strong tag
+    private String representationTag(String etag, WebRequest request) {
+        return prefersCbor(request) ? etag.substring(0, etag.length() - 1) + "-cbor\"" : etag;
+    }
+
+    // the accepted types come sorted by quality and specificity; JSON's converter is registered first, so a type
+    // that matches both (*/* or no Accept) gets JSON, as it does when the body is written
+    private boolean prefersCbor(WebRequest request) {
+        try {
+            for (MediaType accepted : contentNegotiation.resolveMediaTypes((NativeWebRequest) request)) {
+                if (accepted.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                    return false;
+                }
+                if (accepted.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                    return true;
+                }
+            }
+        } catch (HttpMediaTypeNotAcceptableException ex) {
+            // an unparseable Accept is rejected when the body is written
+        }
+        return false;
+    }
+
+    private static <T> ResponseEntity<T> notModified(String etag, CacheControl cacheControl) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).varyBy(HttpHeaders.ACCEPT).build();
+    }
+
+    // a zero max-age still lets clients keep the body, but they revalidate it on every use
+    private static CacheControl cacheControl(Duration maxAge) {
+        return maxAge.isZero() ? CacheControl.noCache() : CacheControl.maxAge(maxAge).mustRevalidate();
+    }
+
+    private static CarHistoryQuery historyQuery(String from, String to, Integer limit, String cursor) {
+        return new CarHistoryQuery(parseDate(from), parseDate(to), limit, cursor != null ? CarHistoryCursor.parse(cursor) : null);
+    }
+
+    private static LocalDate parseDate(String date) {
+        if (date == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(date);
+        } catch (Exception ex) {
+            throw new InvalidDateException(date);
+        }
     }
 
     public record InsuranceValidityResponse(Long carId, String date, boolean valid) {}
@@ -0,0 +1,78 @@
+package com.example.carins.web.controller;
+
+import com.example.carins.service.ClaimAnalyticsIndex;
+import com.example.carins.service.ClaimAnalyticsQuery;
+import com.example.carins.service.ClaimColumnSnapshot;
+import com.example.carins.web.dto.ClaimScanResultDto;
+import com.example.carins.web.dto.ClaimStatsDto;
+import com.example.carins.web.exception.BadRequestException;
+import com.example.carins.web.exception.InvalidDateException;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/claims")
+public class ClaimAnalyticsController {
+    private static final int DEFAULT_LIMIT = 100;
+
+    private final ClaimAnalyticsIndex analytics;
+    private final ClaimColumnSnapshot snapshot;
+
+    public ClaimAnalyticsController(ClaimAnalyticsIndex analytics, ClaimColumnSnapshot snapshot) {
+        this.analytics = analytics;
+        this.snapshot = snapshot;
+    }
+
+    // groupBy: all, car, owner, make-model or provider; bucket: month or year; from/to are months (YYYY-MM), inclusive
+    @GetMapping("/analytics")
+    public List<ClaimStatsDto> getClaimStats(@RequestParam(defaultValue = "all") String groupBy,
+                                             @RequestParam(required = false) String bucket,
+                                             @RequestParam(required = false) String from,
+                                             @RequestParam(required = false) String to,
+                                             @RequestParam(required = false) String key,
+                                             @RequestParam(required = false) Integer limit) {
+        return analytics.query(new ClaimAnalyticsQuery(ClaimAnalyticsQuery.Group.parse(groupBy),
+                ClaimAnalyticsQuery.Bucket.parse(bucket), parseMonth(from), parseMonth(to), key,
+                limit != null ? limit : DEFAULT_LIMIT));
+    }
+
+    // ad-hoc filter over every claim; from/to are ISO dates and all bounds are inclusive
+    @GetMapping("/scan")
+    public ClaimScanResultDto scanClaims(@RequestParam(required = false) String from,
+                                         @RequestParam(required = false) String to,
+                                         @RequestParam(required = false) BigDecimal minAmount,
+                                         @RequestParam(required = false) BigDecimal maxAmount,
+                                         @RequestParam(required = false) Long carId,
+                                         @RequestParam(required = false) String description) {
+        return snapshot.scan(parseDate(from), parseDate(to), minAmount, maxAmount, carId, description);
+    }
+
+    private static LocalDate parseDate(String date) {
+        if (date == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(date);
+        } catch (Exception ex) {
+            throw new InvalidDateException(date);
+        }
+    }
+
+    private static YearMonth parseMonth(String month) {
+        if (month == null) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(month);
+        } catch (Exception ex) {
+            throw new BadRequestException("Invalid month provided (" + month + "): must be ISO format (YYYY-MM)");
+        }
+    }
+}
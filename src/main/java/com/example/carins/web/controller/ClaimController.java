@@ -1,28 +1,66 @@
 package com.example.carins.web.controller;
 
 import com.example.carins.service.ClaimService;
+import com.example.carins.service.ClaimSubmissionService;
 import com.example.carins.web.dto.ClaimCreateRequestDto;
 import com.example.carins.web.dto.ClaimResponseDto;
+import com.example.carins.web.dto.ClaimSubmissionDto;
 import jakarta.validation.Valid;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/cars/{carId}/claims")
 public class ClaimController {
+    private static final String RESPOND_ASYNC = "respond-async";
+
     private final ClaimService claimService;
-    public ClaimController(ClaimService claimService) {
+    private final ClaimSubmissionService submissionService;
+    public ClaimController(ClaimService claimService, ClaimSubmissionService submissionService) {
         this.claimService = claimService;
+        this.submissionService = submissionService;
     }
 
+    // Prefer: respond-async, alone or among other preferences, queues the claim and answers 202 right away;
+    // Location points at the submission status. Preferences this endpoint does not know (e.g. wait) are ignored
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public ResponseEntity<ClaimResponseDto> createClaim(@PathVariable Long carId, @RequestBody @Valid ClaimCreateRequestDto claimReqDto) {
+    public ResponseEntity<?> createClaim(@PathVariable Long carId, @RequestBody @Valid ClaimCreateRequestDto claimReqDto,
+                                         @RequestHeader(value = "Prefer", required = false) List<String> preferences,
+                                         @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (prefers(preferences, RESPOND_ASYNC)) {
+            ClaimSubmissionDto submission = submissionService.submit(carId, claimReqDto, idempotencyKey);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/cars/" + carId + "/claims/submissions/" + submission.trackingId()))
+                    .header("Preference-Applied", RESPOND_ASYNC)
+                    .body(submission);
+        }
         ClaimResponseDto created = claimService.createClaim(carId, claimReqDto);
         return ResponseEntity.created(URI.create("/api/cars/"+carId+"/claims/"+created.id()))
                 .body(created);
     }
+
+    @GetMapping("/submissions/{trackingId}")
+    public ClaimSubmissionDto getSubmission(@PathVariable Long carId, @PathVariable String trackingId) {
+        return submissionService.status(carId, trackingId);
+    }
+
+    // each Prefer value holds comma-separated preferences, e.g. "respond-async, wait=10"; names are case-insensitive
+    // and may carry a value or parameters after '=' or ';'
+    private static boolean prefers(List<String> preferences, String name) {
+        if (preferences == null) {
+            return false;
+        }
+        for (String value : preferences) {
+            for (String preference : value.split(",")) {
+                String token = preference.split("[=;]", 2)[0].trim();
+                if (token.equalsIgnoreCase(name)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,56 @@
+package com.example.carins.web.controller;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// writes CSV with a header line, one record per line, without buffering the whole result
+final class CsvStreams {
+
+    private CsvStreams() {}
+
+    static <T> StreamingResponseBody body(List<String> header, Function<T, List<?>> columns, Consumer<Consumer<T>> source) {
+        return out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writeLine(writer, header);
+            source.accept(value -> {
+                try {
+                    writeLine(writer, columns.apply(value));
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            writer.flush();
+        };
+    }
+
+    private static void writeLine(Writer writer, List<?> fields) throws IOException {
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escape(fields.get(i)));
+        }
+        writer.write('\n');
+    }
+
+    // RFC 4180: quote fields holding a separator, quote or line break, doubling embedded quotes
+    private static String escape(Object field) {
+        if (field == null) {
+            return "";
+        }
+        String value = field.toString();
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
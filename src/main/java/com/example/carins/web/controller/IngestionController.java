@@ -0,0 +1,47 @@
+package com.example.carins.web.controller;
+
+import com.example.carins.service.IngestionService;
+import com.example.carins.web.dto.ClaimIngestRequestDto;
+import com.example.carins.web.dto.IngestionFailureDto;
+import com.example.carins.web.dto.IngestionReceiptDto;
+import com.example.carins.web.dto.IngestionStatusDto;
+import com.example.carins.web.dto.InsurancePolicyRequestDto;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+// 202 means the accepted records are queued; 429 (with Retry-After) means nothing from the request was queued
+@RestController
+@RequestMapping("/api/ingest")
+public class IngestionController {
+
+    private final IngestionService ingestionService;
+
+    public IngestionController(IngestionService ingestionService) {
+        this.ingestionService = ingestionService;
+    }
+
+    @PostMapping("/policies")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public IngestionReceiptDto ingestPolicies(@RequestBody List<InsurancePolicyRequestDto> policies) {
+        return ingestionService.submitPolicies(policies);
+    }
+
+    @PostMapping("/claims")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public IngestionReceiptDto ingestClaims(@RequestBody List<ClaimIngestRequestDto> claims) {
+        return ingestionService.submitClaims(claims);
+    }
+
+    @GetMapping("/status")
+    public List<IngestionStatusDto> status() {
+        return ingestionService.status();
+    }
+
+    // accepted records that failed when their batch was written, with the reason
+    @GetMapping("/failures")
+    public List<IngestionFailureDto> failures() {
+        return ingestionService.failures();
+    }
+}
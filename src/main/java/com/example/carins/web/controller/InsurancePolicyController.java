@@ -2,32 +2,118 @@ package com.example.carins.web.controller;
 
 import com.example.carins.service.InsurancePolicyService;
 
+import com.example.carins.service.PolicyOverlapService;
+import com.example.carins.service.VersionedPolicy;
 import com.example.carins.web.dto.InsurancePolicyRequestDto;
 import com.example.carins.web.dto.InsurancePolicyResponseDto;
+import com.example.carins.web.dto.PolicyOverlapDto;
 import com.example.carins.web.exception.BadRequestException;
+import com.example.carins.web.exception.PolicyVersionMismatchException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api")
 public class InsurancePolicyController {
+    static final String OVERLAPS_HEADER = "X-Overlapping-Policies";
 
     private final InsurancePolicyService policyService;
+    private final PolicyOverlapService overlapService;
+    private final ObjectMapper objectMapper;
 
-    public InsurancePolicyController(InsurancePolicyService policyService) {
+    public InsurancePolicyController(InsurancePolicyService policyService, PolicyOverlapService overlapService,
+                                     ObjectMapper objectMapper) {
         this.policyService = policyService;
+        this.overlapService = overlapService;
+        this.objectMapper = objectMapper;
+    }
+
+    // every overlapping pair of policies of the same car, fleet-wide, as a JSON array
+    @GetMapping("/policies/overlaps")
+    public ResponseEntity<StreamingResponseBody> getOverlaps() {
+        ObjectWriter writer = objectMapper.writerFor(PolicyOverlapDto.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                overlapService.forEachOverlap(overlap -> {
+                    try {
+                        writer.writeValue(generator, overlap);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @GetMapping(value = "/policies/overlaps", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamOverlaps() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(NdjsonStreams.body(objectMapper, PolicyOverlapDto.class, overlapService::forEachOverlap));
+    }
+
+    // every policy response carries its version as a strong ETag, to be sent back in If-Match
+    @GetMapping("/policies/{id}")
+    public ResponseEntity<InsurancePolicyResponseDto> getPolicy(@PathVariable("id") long id) {
+        return versioned(HttpStatus.OK, policyService.getPolicy(id));
     }
 
     @PostMapping("/policies")
-    @ResponseStatus(HttpStatus.CREATED)
-    public InsurancePolicyResponseDto createPolicy(@Valid @RequestBody InsurancePolicyRequestDto policyDto) {
-        return policyService.createPolicy(policyDto);
+    public ResponseEntity<InsurancePolicyResponseDto> createPolicy(@Valid @RequestBody InsurancePolicyRequestDto policyDto) {
+        return versioned(HttpStatus.CREATED, policyService.createPolicy(policyDto));
     }
 
+    // with If-Match the update only applies to that version (412 otherwise); without it, concurrent updates are
+    // applied one after the other
     @PutMapping("/policies/{id}")
-    public InsurancePolicyResponseDto updatePolicy(@PathVariable("id")long id, @Valid @RequestBody InsurancePolicyRequestDto policyDto) throws BadRequestException {
-        return policyService.updatePolicy(id, policyDto);
+    public ResponseEntity<InsurancePolicyResponseDto> updatePolicy(@PathVariable("id")long id, @Valid @RequestBody InsurancePolicyRequestDto policyDto,
+                                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws BadRequestException {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return versioned(HttpStatus.OK, policyService.updatePolicy(id, policyDto));
+        }
+        return versioned(HttpStatus.OK, policyService.updatePolicy(id, policyDto, parseVersion(id, ifMatch)));
+    }
+
+    @PostMapping("/policies/{id}/extend")
+    public ResponseEntity<InsurancePolicyResponseDto> extendPolicy(@PathVariable("id") long id, @RequestParam int days) {
+        return versioned(HttpStatus.OK, policyService.extendPolicy(id, days));
     }
 
+    // in flag mode, the ids of the other policies the written interval overlaps come back in X-Overlapping-Policies
+    private static ResponseEntity<InsurancePolicyResponseDto> versioned(HttpStatus status, VersionedPolicy policy) {
+        var response = ResponseEntity.status(status).eTag("\"" + policy.version() + "\"");
+        if (!policy.overlappingPolicyIds().isEmpty()) {
+            response.header(OVERLAPS_HEADER, policy.overlappingPolicyIds().stream().map(String::valueOf).collect(Collectors.joining(",")));
+        }
+        return response.body(policy.policy());
+    }
+
+    // If-Match compares strongly, so a weak or foreign tag can never match
+    private static long parseVersion(long id, String ifMatch) {
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw new PolicyVersionMismatchException(id);
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException ex) {
+            throw new PolicyVersionMismatchException(id);
+        }
+    }
 }
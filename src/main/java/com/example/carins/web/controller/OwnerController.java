@@ -0,0 +1,48 @@
+package com.example.carins.web.controller;
+
+import com.example.carins.service.OwnerPortfolioService;
+import com.example.carins.web.dto.OwnerPortfolioDto;
+import com.example.carins.web.exception.InvalidDateException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/owners")
+public class OwnerController {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private final OwnerPortfolioService portfolioService;
+
+    public OwnerController(OwnerPortfolioService portfolioService) {
+        this.portfolioService = portfolioService;
+    }
+
+    // current policies are those active on date (today by default); X-Next-Cursor carries the afterCarId of the next page
+    @GetMapping("/{ownerId}/portfolio")
+    public ResponseEntity<OwnerPortfolioDto> getPortfolio(@PathVariable Long ownerId,
+                                                          @RequestParam(required = false) String date,
+                                                          @RequestParam(required = false) Long afterCarId,
+                                                          @RequestParam(required = false) Integer limit) {
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        OwnerPortfolioDto portfolio = portfolioService.getPortfolio(ownerId, parseDate(date),
+                afterCarId != null ? afterCarId : 0L, pageSize);
+        var response = ResponseEntity.ok();
+        if (portfolio.cars().size() == pageSize) {
+            response.header(CarController.NEXT_CURSOR_HEADER, String.valueOf(portfolio.cars().get(pageSize - 1).id()));
+        }
+        return response.body(portfolio);
+    }
+
+    private static LocalDate parseDate(String date) {
+        if (date == null) {
+            return LocalDate.now();
+        }
+        try {
+            return LocalDate.parse(date);
+        } catch (Exception ex) {
+            throw new InvalidDateException(date);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.carins.web.controller;
+
+import com.example.carins.service.CoverageReportService;
+import com.example.carins.web.dto.CarDto;
+import com.example.carins.web.dto.DailyCoverageDto;
+import com.example.carins.web.exception.InvalidDateException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// reports are CSV by default, or NDJSON when asked for with Accept: application/x-ndjson
+@RestController
+@RequestMapping("/api/reports")
+public class ReportController {
+    static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    private static final List<String> CAR_COLUMNS = List.of("carId", "vin", "make", "model", "yearOfManufacture", "ownerId", "ownerName", "ownerEmail");
+    private static final List<String> DAILY_COLUMNS = List.of("date", "cars", "insured", "uninsured");
+
+    private final CoverageReportService reportService;
+    private final ObjectMapper objectMapper;
+
+    public ReportController(CoverageReportService reportService, ObjectMapper objectMapper) {
+        this.reportService = reportService;
+        this.objectMapper = objectMapper;
+    }
+
+    // cars without a policy active on the date
+    @GetMapping("/uninsured")
+    public ResponseEntity<StreamingResponseBody> uninsuredCsv(@RequestParam String date) {
+        LocalDate day = parseDate(date);
+        return ResponseEntity.ok()
+                .contentType(TEXT_CSV)
+                .body(CsvStreams.body(CAR_COLUMNS, (CarDto car) -> List.of(car.id(), car.vin(), nullToEmpty(car.make()),
+                        nullToEmpty(car.model()), car.year(), car.ownerId(), car.ownerName(), nullToEmpty(car.ownerEmail())),
+                        sink -> reportService.forEachUninsuredCar(day, sink)));
+    }
+
+    @GetMapping(value = "/uninsured", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> uninsuredNdjson(@RequestParam String date) {
+        LocalDate day = parseDate(date);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(NdjsonStreams.body(objectMapper, CarDto.class, sink -> reportService.forEachUninsuredCar(day, sink)));
+    }
+
+    // insured and uninsured car counts for every day from..to (inclusive)
+    @GetMapping("/uninsured/daily")
+    public ResponseEntity<StreamingResponseBody> dailyCsv(@RequestParam String from, @RequestParam String to) {
+        List<DailyCoverageDto> days = reportService.dailyCoverage(parseDate(from), parseDate(to));
+        return ResponseEntity.ok()
+                .contentType(TEXT_CSV)
+                .body(CsvStreams.body(DAILY_COLUMNS, (DailyCoverageDto day) -> List.of(day.date(), day.cars(), day.insured(), day.uninsured()),
+                        days::forEach));
+    }
+
+    @GetMapping(value = "/uninsured/daily", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> dailyNdjson(@RequestParam String from, @RequestParam String to) {
+        List<DailyCoverageDto> days = reportService.dailyCoverage(parseDate(from), parseDate(to));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(NdjsonStreams.body(objectMapper, DailyCoverageDto.class, days::forEach));
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static LocalDate parseDate(String date) {
+        try {
+            return LocalDate.parse(date);
+        } catch (Exception ex) {
+            throw new InvalidDateException(date);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.carins.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// outcome of one row of a bulk import: id is set for created cars, error/message explain rejected rows
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CarImportResultDto(int row, String vin, Long id, int status, String error, String message) {
+}
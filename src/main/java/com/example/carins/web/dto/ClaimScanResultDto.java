@@ -0,0 +1,6 @@
+package com.example.carins.web.dto;
+
+import java.math.BigDecimal;
+
+// scanned is the number of claims in the snapshot; average, min and max are null when nothing matched
+public record ClaimScanResultDto(long scanned, long matched, BigDecimal total, BigDecimal average, BigDecimal min, BigDecimal max) {}
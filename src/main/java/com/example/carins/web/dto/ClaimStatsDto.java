@@ -0,0 +1,7 @@
+package com.example.carins.web.dto;
+
+import java.math.BigDecimal;
+
+// period is the month (YYYY-MM) or year of the group when results are bucketed, null otherwise
+public record ClaimStatsDto(String key, String period, long count, BigDecimal total, BigDecimal average,
+                            BigDecimal p50, BigDecimal p90, BigDecimal p99) {}
@@ -0,0 +1,5 @@
+package com.example.carins.web.dto;
+
+// claimId is set once the claim is WRITTEN; message explains a FAILED submission
+public record ClaimSubmissionDto(String trackingId, Long carId, ClaimSubmissionStatus status, Long claimId, String message) {
+}
@@ -0,0 +1,5 @@
+package com.example.carins.web.dto;
+
+public enum ClaimSubmissionStatus {
+    PENDING, WRITTEN, FAILED
+}
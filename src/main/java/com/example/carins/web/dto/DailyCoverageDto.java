@@ -0,0 +1,5 @@
+package com.example.carins.web.dto;
+
+import java.time.LocalDate;
+
+public record DailyCoverageDto(LocalDate date, long cars, long insured, long uninsured) {}
@@ -0,0 +1,7 @@
+package com.example.carins.web.dto;
+
+import java.time.Instant;
+
+// a record that was accepted (202) but could not be written; record is the record as submitted
+public record IngestionFailureDto(String stream, Object record, String message, Instant failedAt) {
+}
@@ -0,0 +1,7 @@
+package com.example.carins.web.dto;
+
+import java.util.List;
+
+// accepted records are queued and written asynchronously; rejected ones are never queued
+public record IngestionReceiptDto(int accepted, List<IngestionRejectionDto> rejected) {
+}
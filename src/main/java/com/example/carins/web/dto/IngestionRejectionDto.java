@@ -0,0 +1,5 @@
+package com.example.carins.web.dto;
+
+// row is the 1-based position of the rejected record in the submitted array
+public record IngestionRejectionDto(int row, String message) {
+}
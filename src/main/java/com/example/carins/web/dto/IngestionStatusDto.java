@@ -0,0 +1,5 @@
+package com.example.carins.web.dto;
+
+// rejected records were refused when their batch was written (e.g. overlapping policies), failed ones could not be written
+public record IngestionStatusDto(String stream, long pending, long written, long rejected, long failed, int capacity) {
+}
@@ -0,0 +1,3 @@
+package com.example.carins.web.dto;
+
+public record InsuranceValidityCheckDto(Long carId, String date) {}
@@ -0,0 +1,16 @@
+package com.example.carins.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// one row of a batch validity check: either valid is set, or status/error/message describe why the row failed
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record InsuranceValidityResultDto(Long carId, String date, Boolean valid, Integer status, String error, String message) {
+
+    public static InsuranceValidityResultDto ok(Long carId, String date, boolean valid) {
+        return new InsuranceValidityResultDto(carId, date, valid, null, null, null);
+    }
+
+    public static InsuranceValidityResultDto failed(Long carId, String date, int status, String error, String message) {
+        return new InsuranceValidityResultDto(carId, date, null, status, error, message);
+    }
+}
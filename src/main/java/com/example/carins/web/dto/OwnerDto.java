@@ -0,0 +1,3 @@
+package com.example.carins.web.dto;
+
+public record OwnerDto(Long id, String name, String email) {}
@@ -0,0 +1,8 @@
+package com.example.carins.web.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// carCount covers every car of the owner; cars holds one page of them, in id order
+public record OwnerPortfolioDto(Long ownerId, String name, String email, LocalDate date, long carCount,
+                                List<PortfolioCarDto> cars) {}
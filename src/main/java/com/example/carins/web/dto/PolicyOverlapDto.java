@@ -0,0 +1,6 @@
+package com.example.carins.web.dto;
+
+import java.time.LocalDate;
+
+// policyId starts no earlier than otherPolicyId; overlapStart..overlapEnd is the doubly covered range (inclusive)
+public record PolicyOverlapDto(Long carId, Long policyId, Long otherPolicyId, LocalDate overlapStart, LocalDate overlapEnd) {}
@@ -0,0 +1,7 @@
+package com.example.carins.web.dto;
+
+import java.math.BigDecimal;
+
+// currentPolicy is null when the car is not insured on the portfolio date
+public record PortfolioCarDto(Long id, String vin, String make, String model, int yearOfManufacture,
+                              InsurancePolicyResponseDto currentPolicy, long claimCount, BigDecimal claimTotal) {}
@@ -0,0 +1,7 @@
+package com.example.carins.web.exception;
+
+public class ClaimSubmissionNotFoundException extends RuntimeException {
+    public ClaimSubmissionNotFoundException(String trackingId) {
+        super("Claim submission not found: " + trackingId);
+    }
+}
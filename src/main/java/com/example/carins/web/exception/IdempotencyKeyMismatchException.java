@@ -0,0 +1,7 @@
+package com.example.carins.web.exception;
+
+public class IdempotencyKeyMismatchException extends RuntimeException {
+    public IdempotencyKeyMismatchException(String idempotencyKey) {
+        super("Idempotency-Key " + idempotencyKey + " was already used for a different claim on this car");
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.carins.web.exception;
+
+public class IngestionQueueFullException extends RuntimeException {
+    public IngestionQueueFullException(String stream, int requested, int remainingCapacity) {
+        super("Ingestion queue for " + stream + " is full: " + requested + " records submitted, room for "
+                + remainingCapacity + ". Retry later");
+    }
+}
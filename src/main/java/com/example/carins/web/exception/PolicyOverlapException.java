@@ -0,0 +1,9 @@
+package com.example.carins.web.exception;
+
+import java.util.List;
+
+public class PolicyOverlapException extends RuntimeException {
+    public PolicyOverlapException(Long carId, List<Long> overlappingPolicyIds) {
+        super("Policy interval overlaps existing policies " + overlappingPolicyIds + " of car " + carId);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.carins.web.exception;
+
+public class PolicyVersionMismatchException extends RuntimeException {
+    public PolicyVersionMismatchException(long policyId) {
+        super("Policy " + policyId + " was changed since the version given in If-Match; fetch it again and retry");
+    }
+}
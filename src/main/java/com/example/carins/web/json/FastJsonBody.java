@@ -0,0 +1,11 @@
+package com.example.carins.web.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+// a response body that writes itself to the generator instead of going through Jackson's bean serializers
+@FunctionalInterface
+public interface FastJsonBody {
+    void writeTo(JsonGenerator generator) throws IOException;
+}
@@ -0,0 +1,50 @@
+package com.example.carins.web.json;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+
+// writes FastJsonBody return values; the factory recycles its buffers per thread, so a response allocates next to nothing.
+// The bodies only use the generator API, so a CBOR factory writes the same documents in CBOR
+public class FastJsonHttpMessageConverter extends AbstractHttpMessageConverter<FastJsonBody> {
+    private final JsonFactory jsonFactory;
+
+    public FastJsonHttpMessageConverter(JsonFactory jsonFactory) {
+        this(jsonFactory, MediaType.APPLICATION_JSON);
+    }
+
+    public FastJsonHttpMessageConverter(JsonFactory jsonFactory, MediaType mediaType) {
+        super(mediaType);
+        this.jsonFactory = jsonFactory;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return FastJsonBody.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected FastJsonBody readInternal(Class<? extends FastJsonBody> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Fast JSON bodies are write-only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(FastJsonBody body, HttpOutputMessage outputMessage) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(StreamUtils.nonClosing(outputMessage.getBody()), JsonEncoding.UTF8)) {
+            body.writeTo(generator);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.carins.web.json;
+
+import com.example.carins.repo.projection.CarHistoryRow;
+import com.example.carins.web.dto.CarDto;
+import com.example.carins.web.dto.CarHistoryEventType;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hand-written JSON for the hottest reads: the car list, car history and the validity check. Field names and
+ * event types are encoded once, dates are written from a per-response char buffer, and history descriptions are
+ * built in one reused builder straight from the database rows, so no DTO or string is created per element.
+ * The output is byte for byte what the application's ObjectMapper writes for the matching DTOs.
+ */
+public final class FastJsonWriters {
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString VIN = new SerializedString("vin");
+    private static final SerializableString MAKE = new SerializedString("make");
+    private static final SerializableString MODEL = new SerializedString("model");
+    private static final SerializableString YEAR = new SerializedString("year");
+    private static final SerializableString OWNER_ID = new SerializedString("ownerId");
+    private static final SerializableString OWNER_NAME = new SerializedString("ownerName");
+    private static final SerializableString OWNER_EMAIL = new SerializedString("ownerEmail");
+    private static final SerializableString TYPE = new SerializedString("type");
+    private static final SerializableString DESCRIPTION = new SerializedString("description");
+    private static final SerializableString DATE = new SerializedString("date");
+    private static final SerializableString CAR_ID = new SerializedString("carId");
+    private static final SerializableString VALID = new SerializedString("valid");
+    private static final SerializableString[] EVENT_TYPES = Arrays.stream(CarHistoryEventType.values())
+            .map(type -> new SerializedString(type.name()))
+            .toArray(SerializableString[]::new);
+
+    private FastJsonWriters() {}
+
+    // matches List<CarDto>
+    public static FastJsonBody cars(List<CarDto> cars) {
+        return generator -> {
+            generator.writeStartArray();
+            for (CarDto car : cars) {
+                writeCar(generator, car);
+            }
+            generator.writeEndArray();
+        };
+    }
+
+    // matches the List<CarHistoryDto> the rows map to
+    public static FastJsonBody history(List<? extends CarHistoryRow> rows) {
+        return generator -> {
+            Scratch scratch = new Scratch();
+            generator.writeStartArray();
+            for (CarHistoryRow row : rows) {
+                writeHistoryEvent(generator, row, scratch);
+            }
+            generator.writeEndArray();
+        };
+    }
+
+    // matches CarController.InsuranceValidityResponse
+    public static FastJsonBody validity(Long carId, LocalDate date, boolean valid) {
+        return generator -> {
+            generator.writeStartObject();
+            generator.writeFieldName(CAR_ID);
+            writeNumber(generator, carId);
+            generator.writeFieldName(DATE);
+            writeDate(generator, date, new char[10]);
+            generator.writeFieldName(VALID);
+            generator.writeBoolean(valid);
+            generator.writeEndObject();
+        };
+    }
+
+    private static void writeCar(JsonGenerator generator, CarDto car) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(ID);
+        writeNumber(generator, car.id());
+        generator.writeFieldName(VIN);
+        generator.writeString(car.vin());
+        generator.writeFieldName(MAKE);
+        generator.writeString(car.make());
+        generator.writeFieldName(MODEL);
+        generator.writeString(car.model());
+        generator.writeFieldName(YEAR);
+        generator.writeNumber(car.year());
+        generator.writeFieldName(OWNER_ID);
+        writeNumber(generator, car.ownerId());
+        generator.writeFieldName(OWNER_NAME);
+        generator.writeString(car.ownerName());
+        generator.writeFieldName(OWNER_EMAIL);
+        generator.writeString(car.ownerEmail());
+        generator.writeEndObject();
+    }
+
+    private static void writeHistoryEvent(JsonGenerator generator, CarHistoryRow row, Scratch scratch) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(TYPE);
+        generator.writeString(EVENT_TYPES[row.type().ordinal()]);
+        generator.writeFieldName(DESCRIPTION);
+        scratch.text.setLength(0);
+        row.appendDescription(scratch.text);
+        int length = scratch.text.length();
+        if (scratch.chars.length < length) {
+            scratch.chars = new char[Math.max(length, scratch.chars.length * 2)];
+        }
+        scratch.text.getChars(0, length, scratch.chars, 0);
+        generator.writeString(scratch.chars, 0, length);
+        generator.writeFieldName(DATE);
+        writeDate(generator, row.date(), scratch.date);
+        generator.writeEndObject();
+    }
+
+    private static void writeNumber(JsonGenerator generator, Long value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value.longValue());
+        }
+    }
+
+    // ISO yyyy-MM-dd like LocalDate.toString(), which is how the ObjectMapper writes dates
+    private static void writeDate(JsonGenerator generator, LocalDate date, char[] buffer) throws IOException {
+        if (date == null) {
+            generator.writeNull();
+            return;
+        }
+        int year = date.getYear();
+        if (year < 1000 || year > 9999) {
+            generator.writeString(date.toString());
+            return;
+        }
+        buffer[0] = (char) ('0' + year / 1000);
+        buffer[1] = (char) ('0' + year / 100 % 10);
+        buffer[2] = (char) ('0' + year / 10 % 10);
+        buffer[3] = (char) ('0' + year % 10);
+        buffer[4] = '-';
+        buffer[5] = (char) ('0' + date.getMonthValue() / 10);
+        buffer[6] = (char) ('0' + date.getMonthValue() % 10);
+        buffer[7] = '-';
+        buffer[8] = (char) ('0' + date.getDayOfMonth() / 10);
+        buffer[9] = (char) ('0' + date.getDayOfMonth() % 10);
+        generator.writeString(buffer, 0, 10);
+    }
+
+    // per-response buffers, reused for every event of the response
+    private static final class Scratch {
+        final StringBuilder text = new StringBuilder(128);
+        final char[] date = new char[10];
+        char[] chars = new char[128];
+    }
+}
@@ -0,0 +1,52 @@
+-- schema as Hibernate generated it before migrations took over (ddl-auto is now validate)
+-- increments match the allocationSize of the entities' pooled sequences
+create sequence car_seq start with 1 increment by 50;
+create sequence policy_seq start with 1 increment by 50;
+create sequence claim_seq start with 1 increment by 50;
+
+create table owner (
+    id bigint generated by default as identity,
+    name varchar(255) not null,
+    email varchar(255),
+    primary key (id)
+);
+
+create table car (
+    id bigint not null,
+    vin varchar(32) not null unique,
+    make varchar(255),
+    model varchar(255),
+    year_of_manufacture integer not null,
+    owner_id bigint not null,
+    primary key (id),
+    constraint fk_car_owner foreign key (owner_id) references owner
+);
+
+create table insurancepolicy (
+    id bigint not null,
+    car_id bigint not null,
+    provider varchar(255),
+    start_date date,
+    end_date date not null,
+    primary key (id),
+    constraint fk_policy_car foreign key (car_id) references car
+);
+
+create table claim (
+    id bigint not null,
+    car_id bigint not null,
+    claim_date date not null,
+    description varchar(255) not null,
+    amount numeric(38,2) not null,
+    primary key (id),
+    constraint fk_claim_car foreign key (car_id) references car
+);
+
+create table expiry_checkpoint (
+    name varchar(255) not null,
+    last_end_date date not null,
+    last_policy_id bigint not null,
+    primary key (name)
+);
+
+create index idx_policy_end_date_id on insurancepolicy (end_date, id);
@@ -0,0 +1,12 @@
+-- One index per access path; QueryPlanTests fails when a repository query stops using them.
+
+-- existsActiveOnDate, findByCarId, findIntervalsByCarId(s), streamHistory and streamAllIntervals:
+-- equality on car_id, then a range/order on start_date; end_date is included so the validity
+-- check and the interval projection are answered from the index alone
+create index idx_policy_car_start_end on insurancepolicy (car_id, start_date, end_date);
+
+-- ClaimRepository.findByCarId and streamHistory: car_id, then ordered by claim_date (and id, which every index carries)
+create index idx_claim_car_date on claim (car_id, claim_date);
+
+-- cars of an owner, and the foreign key check when owners are deleted
+create index idx_car_owner on car (owner_id);
@@ -0,0 +1,17 @@
+-- demo data used by the API samples in the README and by the tests
+INSERT INTO owner (id, name, email) VALUES (1, 'Ana Pop', 'ana.pop@example.com');
+INSERT INTO owner (id, name, email) VALUES (2, 'Bogdan Ionescu', 'bogdan.ionescu@example.com');
+
+INSERT INTO car (id, vin, make, model, year_of_manufacture, owner_id) VALUES (1, 'VIN12345', 'Dacia', 'Logan', 2018, 1);
+INSERT INTO car (id, vin, make, model, year_of_manufacture, owner_id) VALUES (2, 'VIN67890', 'VW', 'Golf', 2021, 2);
+INSERT INTO car (id, vin, make, model, year_of_manufacture, owner_id) VALUES (3, 'VIN31483', 'Honda', 'Civic', 2016, 2);
+-- generated car ids continue after the first block of 50 (pooled-lo optimizer)
+ALTER SEQUENCE car_seq RESTART WITH 51;
+
+INSERT INTO insurancepolicy (id, car_id, provider, start_date, end_date) VALUES (1, 1, 'Allianz', DATE '2024-01-01', DATE '2024-12-31');
+INSERT INTO insurancepolicy (id, car_id, provider, start_date, end_date) VALUES (2, 1, 'Groupama', DATE '2025-01-01', '2026-01-01');
+INSERT INTO insurancepolicy (id, car_id, provider, start_date, end_date) VALUES (3, 2, 'Allianz', DATE '2025-03-01', DATE '2025-09-30');
+ALTER SEQUENCE policy_seq RESTART WITH 51;
+
+INSERT INTO claim (id, car_id, claim_date, description, amount) VALUES (1, 1, DATE '2024-05-01', 'Broken window', 1000);
+ALTER SEQUENCE claim_seq RESTART WITH 51;
\ No newline at end of file
@@ -0,0 +1,3 @@
+-- tracking id of the async submission a claim was written from; unique so a replayed submission cannot insert twice
+alter table claim add column submission_id varchar(36);
+create unique index ux_claim_submission_id on claim (submission_id);
@@ -0,0 +1,3 @@
+-- optimistic locking: every update checks and bumps the version it read
+alter table insurancepolicy add column version bigint default 0 not null;
+alter table car add column version bigint default 0 not null;
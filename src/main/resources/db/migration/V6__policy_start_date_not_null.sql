@@ -0,0 +1,5 @@
+-- history pages walk the (car_id, start_date) index as a keyset, which a null start date falls out of.
+-- Every write path already requires a start date; rows written without one get their end date,
+-- the only day they can be said to cover
+update insurancepolicy set start_date = end_date where start_date is null;
+alter table insurancepolicy alter column start_date set not null;
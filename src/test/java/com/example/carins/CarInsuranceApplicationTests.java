@@ -1,35 +1,187 @@
 package com.example.carins;
 
+import com.example.carins.config.SqlStatementCounter;
+import com.example.carins.model.Car;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.ClaimRepository;
+import com.example.carins.repo.ExpiryCheckpointRepository;
+import com.example.carins.repo.projection.CarHistoryRow;
+import com.example.carins.repo.projection.ClaimHistoryRow;
+import com.example.carins.repo.projection.PolicyHistoryRow;
+import com.example.carins.repo.InsurancePolicyRepository;
 import com.example.carins.service.CarService;
+import com.example.carins.service.ClaimAnalyticsIndex;
+import com.example.carins.service.ClaimColumnSnapshot;
+import com.example.carins.service.ClaimSubmissionService;
+import com.example.carins.service.InsurancePolicyService;
+import com.example.carins.service.OwnerPortfolioService;
+import com.example.carins.service.PolicyCoverageIndex;
+import com.example.carins.service.PolicyOverlapService;
+import com.example.carins.service.PolicyExpiredEvent;
+import com.example.carins.service.PolicyExpiryScheduler;
+import com.example.carins.service.PolicyExpirySink;
+import com.example.carins.service.PolicyExpiryWheel;
+import com.example.carins.service.ReferenceDataCache;
+import com.example.carins.service.ResourceVersions;
+import com.example.carins.service.SyntheticDataGenerator;
+import com.example.carins.web.controller.CarController;
+import com.example.carins.web.dto.CarDto;
+import com.example.carins.web.dto.ClaimSubmissionStatus;
 import com.example.carins.web.dto.CarHistoryEventType;
+import com.example.carins.web.dto.ClaimCreateRequestDto;
+import com.example.carins.web.dto.InsurancePolicyRequestDto;
 import com.example.carins.web.exception.CarNotFoundException;
+import com.example.carins.web.exception.ClaimSubmissionNotFoundException;
+import com.example.carins.web.exception.IdempotencyKeyMismatchException;
+import com.example.carins.web.exception.PolicyOverlapException;
+import com.example.carins.web.json.FastJsonBody;
+import com.example.carins.web.json.FastJsonWriters;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.context.annotation.Bean;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.json.JsonCompareMode;
 import org.springframework.test.web.servlet.MockMvc;
-
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 
-@SpringBootTest
+// a fresh claim journal per run, so nothing is replayed from an earlier one
+@SpringBootTest(properties = "carins.claims.journal.dir=target/claim-journal/${random.uuid}")
 @AutoConfigureMockMvc
+// metrics export (the Prometheus endpoint) is off in tests unless asked for
+@AutoConfigureObservability(tracing = false)
 class CarInsuranceApplicationTests {
 
     @Autowired
     CarService service;
 
+    @Autowired
+    PolicyExpiryScheduler expiryScheduler;
+
+    @Autowired
+    RecordingExpirySink expirySink;
+
+    @Autowired
+    SyntheticDataGenerator dataGenerator;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    SqlStatementCounter sqlStatementCounter;
+
+    @Autowired
+    ReferenceDataCache referenceData;
+
+    @Autowired
+    ClaimRepository claimRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ClaimAnalyticsIndex claimAnalytics;
+
+    @Autowired
+    ClaimColumnSnapshot claimSnapshot;
+
+    @Autowired
+    OwnerPortfolioService ownerPortfolioService;
+
+    @Autowired
+    ResourceVersions resourceVersions;
+
+    @Autowired
+    InsurancePolicyService policyService;
+
+    @Autowired
+    InsurancePolicyRepository policyRepository;
+
+    @Autowired
+    CarRepository carRepository;
+
+    @Autowired
+    PolicyCoverageIndex coverageIndex;
+
+    @Autowired
+    ExpiryCheckpointRepository checkpointRepository;
+
+    @Autowired
+    TaskScheduler taskScheduler;
+
+    @TestConfiguration
+    static class ExpirySinkConfig {
+        @Bean
+        RecordingExpirySink recordingExpirySink() {
+            return new RecordingExpirySink();
+        }
+    }
+
+    static class RecordingExpirySink implements PolicyExpirySink {
+        private final List<PolicyExpiredEvent> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void policyExpired(PolicyExpiredEvent event) {
+            events.add(event);
+        }
+
+        long count(long policyId) {
+            return events.stream().filter(e -> e.policyId() == policyId).count();
+        }
+    }
+
     @Autowired
     private MockMvc mvc;
 
@@ -437,4 +589,1298 @@ class CarInsuranceApplicationTests {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.message", Matchers.containsStringIgnoringCase("Invalid VIN provided")));
     }
+
+    // Tests for the policy coverage index
+    @Test
+    void insuranceValidity_reflectsCreatedAndUpdatedPolicies() throws Exception {
+        long carId = createCar("VINCOVERAGE02");
+
+        var policy = new HashMap<String, Object>();
+        policy.put("carId", carId);
+        policy.put("provider", "Generali");
+        policy.put("startDate", "2030-01-01");
+        policy.put("endDate", "2030-06-30");
+
+        String response = mvc.perform(post("/api/policies")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(policy)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long policyId = objectMapper.readTree(response).get("id").asLong();
+
+        assertTrue(service.isInsuranceValid(carId, LocalDate.parse("2030-03-01")));
+        assertFalse(service.isInsuranceValid(carId, LocalDate.parse("2030-09-01")));
+
+        policy.put("endDate", "2030-12-31");
+        mvc.perform(put("/api/policies/" + policyId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(policy)))
+                .andExpect(status().isOk());
+
+        assertTrue(service.isInsuranceValid(carId, LocalDate.parse("2030-09-01")));
+        assertFalse(service.isInsuranceValid(carId, LocalDate.parse("2031-01-01")));
+    }
+
+    @Test
+    void coverageIndex_keepsTheNewestCoverageWhenRefreshesInterleave() throws Exception {
+        long carId = createCar("VINCOVERAGE03");
+        int months = 24;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                // refreshes that may read before a policy commits and finish after its own refresh
+                workers.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        coverageIndex.refreshCar(carId);
+                    }
+                }));
+            }
+            for (int t = 0; t < 2; t++) {
+                int first = t;
+                workers.add(executor.submit(() -> {
+                    for (int month = first; month < months; month += 2) {
+                        LocalDate start = LocalDate.of(2040, 1, 1).plusMonths(month);
+                        policyService.createPolicy(new InsurancePolicyRequestDto(carId, "Allianz", start, start.plusMonths(1).minusDays(1)));
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for (int month = 0; month < months; month++) {
+            assertTrue(service.isInsuranceValid(carId, LocalDate.of(2040, 1, 15).plusMonths(month)), "month " + month);
+        }
+    }
+
+    @Test
+    void coverageIndex_chunkRefresh_neverShowsAnInsuredCarAsUninsured() throws Exception {
+        long insuredCarId = createCar("VINCOVERAGE04");
+        createPolicy(insuredCarId, "2041-01-01", "2041-12-31");
+        long uninsuredCarId = createCar("VINCOVERAGE05");
+        LocalDate day = LocalDate.parse("2041-06-01");
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> refreshes = executor.submit(() -> {
+                for (int i = 0; i < 300; i++) {
+                    coverageIndex.refreshCars(List.of(insuredCarId, uninsuredCarId));
+                }
+            });
+            while (!refreshes.isDone()) {
+                assertTrue(coverageIndex.isCovered(insuredCarId, day));
+            }
+            refreshes.get();
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(coverageIndex.isCovered(insuredCarId, day));
+        assertFalse(coverageIndex.isCovered(uninsuredCarId, day));
+    }
+
+    @Test
+    void insuranceValidity_newCarWithoutPolicies_isNotValid() throws Exception {
+        long carId = createCar("VINCOVERAGE01");
+
+        mvc.perform(get("/api/cars/" + carId + "/insurance-valid")
+                        .param("date", "2025-06-01"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.valid").value(false));
+    }
+
+    // Tests for batch insurance validity
+    @Test
+    void insuranceValidityBatch_reportsPerRowResultsInRequestOrder() throws Exception {
+        var checks = List.of(
+                Map.of("carId", 1L, "date", "2024-06-01"),
+                Map.of("carId", 999L, "date", "2024-06-01"),
+                Map.of("carId", 1L, "date", "2024-13-45"),
+                Map.of("carId", 2L, "date", "2025-02-01"),
+                Map.of("carId", 2L, "date", "1800-01-01"));
+
+        MvcResult result = mvc.perform(post("/api/cars/insurance-valid:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(checks)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5))
+                .andExpect(jsonPath("$[0].valid").value(true))
+                .andExpect(jsonPath("$[1].status").value(404))
+                .andExpect(jsonPath("$[1].message", Matchers.containsStringIgnoringCase("does not exist")))
+                .andExpect(jsonPath("$[2].status").value(400))
+                .andExpect(jsonPath("$[2].message", Matchers.containsStringIgnoringCase("invalid date")))
+                .andExpect(jsonPath("$[3].carId").value(2))
+                .andExpect(jsonPath("$[3].valid").value(false))
+                .andExpect(jsonPath("$[4].message", Matchers.containsStringIgnoringCase("impossible date")));
+    }
+
+    // Tests for car listing
+    @Test
+    void getCars_withLimit_returnsKeysetPageAndNextCursor() throws Exception {
+        mvc.perform(get("/api/cars").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].ownerName").value("Ana Pop"))
+                .andExpect(header().string("X-Next-Cursor", "2"));
+
+        mvc.perform(get("/api/cars").param("afterId", "2").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(jsonPath("$[0].vin").value("VIN31483"));
+    }
+
+    @Test
+    void getCars_withInvalidLimit_returnsBadRequest() throws Exception {
+        mvc.perform(get("/api/cars").param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", Matchers.containsStringIgnoringCase("invalid limit")));
+    }
+
+    @Test
+    void getCars_asNdjson_streamsOneCarPerLine() throws Exception {
+        MvcResult result = mvc.perform(get("/api/cars").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertTrue(lines.length >= 3);
+        assertEquals(1, objectMapper.readTree(lines[0]).get("id").asLong());
+        assertEquals("VIN67890", objectMapper.readTree(lines[1]).get("vin").asText());
+    }
+
+    @Test
+    void carHistory_pagesWithCursorAndDateRange() throws Exception {
+        long carId = createCar("VINHISTORY01");
+        createClaim(carId, "2024-01-10", "Scratch");
+        createClaim(carId, "2024-03-01", "Mirror");
+        createClaim(carId, "2024-03-01", "Bumper");
+        createPolicy(carId, "2024-03-01", "2024-12-31");
+        createPolicy(carId, "2025-01-01", "2025-12-31");
+
+        assertEquals(5, service.getCarHistory(carId).size());
+
+        String cursor = mvc.perform(get("/api/cars/" + carId + "/history").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].date").value("2024-01-10"))
+                .andExpect(jsonPath("$[1].description", Matchers.containsString("Mirror")))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+        assertNotNull(cursor);
+
+        cursor = mvc.perform(get("/api/cars/" + carId + "/history").param("limit", "2").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].description", Matchers.containsString("Bumper")))
+                .andExpect(jsonPath("$[1].type").value("POLICY"))
+                .andExpect(jsonPath("$[1].date").value("2024-03-01"))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+
+        mvc.perform(get("/api/cars/" + carId + "/history").param("limit", "2").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].date").value("2025-01-01"))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+
+        mvc.perform(get("/api/cars/" + carId + "/history").param("from", "2024-02-01").param("to", "2024-12-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3));
+    }
+
+    @Test
+    void carHistory_asNdjson_streamsEventsInOrder() throws Exception {
+        MvcResult result = mvc.perform(get("/api/cars/1/history").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(service.getCarHistory(1L).size(), lines.length);
+        assertEquals("POLICY", objectMapper.readTree(lines[0]).get("type").asText());
+    }
+
+    @Test
+    void policies_requireAStartDate_soHistoryPagesCannotSkipThem() throws Exception {
+        long carId = createCar("VINHISTNULL1");
+        assertThrows(DataIntegrityViolationException.class, () -> jdbc.update(
+                "insert into insurancepolicy (id, car_id, provider, start_date, end_date) values (next value for policy_seq, ?, 'Allianz', null, date '2030-01-01')",
+                carId));
+    }
+
+    @Test
+    void carHistory_withInvalidCursor_returnsBadRequest() throws Exception {
+        mvc.perform(get("/api/cars/1/history").param("cursor", "garbage"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", Matchers.containsStringIgnoringCase("invalid history cursor")));
+
+        mvc.perform(get("/api/cars/9999/history").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isNotFound());
+    }
+
+    // Tests for the policy expiry scheduler
+    @Test
+    void expiryScheduler_emitsDueExpiryExactlyOnce() throws Exception {
+        long carId = createCar("VINEXPIRY01");
+        long policyId = createPolicy(carId, "2020-01-01", LocalDate.now().minusDays(1).toString());
+
+        // tracked on commit and already due, so it is emitted without waiting for midnight
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (expirySink.count(policyId) == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        expiryScheduler.fireDue();
+
+        assertEquals(1, expirySink.count(policyId));
+    }
+
+    @Test
+    void expiryScheduler_keepsFutureExpiriesInTheWheel() throws Exception {
+        long carId = createCar("VINEXPIRY02");
+        int pending = expiryScheduler.pendingCount();
+        long policyId = createPolicy(carId, "2020-01-01", LocalDate.now().plusDays(2).toString());
+
+        assertEquals(pending + 1, expiryScheduler.pendingCount());
+        assertEquals(0, expiryScheduler.fireDue());
+        assertEquals(0, expirySink.count(policyId));
+    }
+
+    @Test
+    void expiryScheduler_horizonReadCannotUndoAChangeCommittedWhileItRuns() throws Exception {
+        long carId = createCar("VINEXPIRY03");
+        LocalDate endDate = LocalDate.now().plusDays(2);
+        long policyId = createPolicy(carId, "2020-01-01", endDate.toString());
+
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        AtomicInteger loaded = new AtomicInteger();
+        // holds the horizon read after it returned and before its rows are put in the wheel
+        InsurancePolicyRepository pausingRepository = (InsurancePolicyRepository) Proxy.newProxyInstance(
+                InsurancePolicyRepository.class.getClassLoader(), new Class<?>[]{InsurancePolicyRepository.class}, (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(policyRepository, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                    if (method.getName().equals("findExpiredAfter") && !((LocalDate) args[2]).isBefore(LocalDate.now())) {
+                        loaded.addAndGet(((List<?>) result).size());
+                        reading.countDown();
+                        resume.await();
+                    }
+                    return result;
+                });
+        PolicyExpiryScheduler scheduler = new PolicyExpiryScheduler(pausingRepository, checkpointRepository,
+                List.of(event -> {}), taskScheduler, 10_000, 7);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> starting = executor.submit(scheduler::start);
+            assertTrue(reading.await(10, TimeUnit.SECONDS));
+            // the policy moves beyond the horizon after the read saw its old end date
+            Future<?> moved = executor.submit(() -> scheduler.policyChangedAfterCommit(policyId, carId, endDate.plusDays(30)));
+            Thread.sleep(100);
+            resume.countDown();
+            starting.get(10, TimeUnit.SECONDS);
+            moved.get(10, TimeUnit.SECONDS);
+        } finally {
+            resume.countDown();
+            executor.shutdown();
+            scheduler.stop();
+        }
+
+        // everything the read returned is pending except the moved policy
+        assertEquals(loaded.get() - 1, scheduler.pendingCount());
+    }
+
+    @Test
+    void expiryWheel_reschedulesAndPollsInExpiryOrder() {
+        var wheel = new PolicyExpiryWheel();
+        LocalDate today = LocalDate.parse("2025-06-10");
+        wheel.schedule(new PolicyExpiredEvent(7L, 1L, LocalDate.parse("2025-06-09")));
+        wheel.schedule(new PolicyExpiredEvent(3L, 1L, LocalDate.parse("2025-06-09")));
+        wheel.schedule(new PolicyExpiredEvent(5L, 2L, LocalDate.parse("2025-06-08")));
+        wheel.schedule(new PolicyExpiredEvent(9L, 2L, LocalDate.parse("2025-06-09")));
+        // moved past today: no longer due
+        wheel.schedule(new PolicyExpiredEvent(9L, 2L, LocalDate.parse("2025-06-20")));
+
+        var due = wheel.pollDue(today);
+
+        assertEquals(List.of(5L, 3L, 7L), due.stream().map(PolicyExpiredEvent::policyId).toList());
+        assertEquals(1, wheel.size());
+        assertEquals(LocalDate.parse("2025-06-21"), wheel.nextDueDay());
+        assertTrue(wheel.pollDue(today).isEmpty());
+    }
+
+    // Tests for bulk car import
+    @Test
+    void importCars_reportsEachRowAndCreatesTheValidOnes() throws Exception {
+        var rows = List.of(
+                Map.of("vin", "VINBULK001", "make", "Skoda", "model", "Fabia", "yearOfManufacture", 2020, "ownerId", 1),
+                Map.of("vin", "VIN12345", "make", "Dacia", "model", "Logan", "yearOfManufacture", 2018, "ownerId", 1),
+                Map.of("vin", "VINBULK002", "make", "Skoda", "model", "Fabia", "yearOfManufacture", 2020, "ownerId", 9999),
+                Map.of("vin", "VINBULK001", "make", "Skoda", "model", "Kamiq", "yearOfManufacture", 2021, "ownerId", 2),
+                Map.of("vin", "VINBULK003", "make", "", "model", "Fabia", "yearOfManufacture", 2020, "ownerId", 2));
+
+        String response = mvc.perform(post("/api/cars/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(rows)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(201))
+                .andExpect(jsonPath("$[1].status").value(400))
+                .andExpect(jsonPath("$[2].status").value(404))
+                .andExpect(jsonPath("$[3].status").value(400))
+                .andExpect(jsonPath("$[4].status").value(400))
+                .andReturn().getResponse().getContentAsString();
+
+        long createdId = objectMapper.readTree(response).get(0).get("id").asLong();
+        mvc.perform(get("/api/cars/" + createdId + "/insurance-valid").param("date", "2025-06-01"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.valid").value(false));
+    }
+
+    @Test
+    void importCarsCsv_createsCarsFromRows() throws Exception {
+        String csv = """
+                ownerId,vin,make,model,yearOfManufacture
+                2,VINCSV0001,"Mercedes-Benz","C 200, AMG Line",2023
+                1,VINCSV0002,Ford,Focus,2019
+                """;
+
+        mvc.perform(post("/api/cars/bulk").contentType("text/csv").content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].status").value(201))
+                .andExpect(jsonPath("$[1].status").value(201));
+
+        mvc.perform(get("/api/cars"))
+                .andExpect(jsonPath("$[?(@.vin == 'VINCSV0001')].model").value("C 200, AMG Line"));
+
+        mvc.perform(post("/api/cars/bulk").contentType("text/csv").content("vin,make\nVINCSV0003,Ford"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Tests for bulk ingestion
+    @Test
+    void ingestPolicies_queuesValidRecordsAndWritesThemInBatches() throws Exception {
+        long carId = createCar("VININGEST01");
+        var policies = List.of(
+                Map.of("carId", carId, "provider", "Allianz", "startDate", "2030-01-01", "endDate", "2030-12-31"),
+                Map.of("carId", carId, "provider", "Groupama", "startDate", "2031-06-01", "endDate", "2031-01-01"),
+                Map.of("carId", 9999, "provider", "Allianz", "startDate", "2030-01-01", "endDate", "2030-12-31"),
+                Map.of("carId", carId, "provider", "Omniasig", "startDate", "2032-01-01", "endDate", "2032-12-31"));
+
+        mvc.perform(post("/api/ingest/policies")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(policies)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected[0].row").value(2))
+                .andExpect(jsonPath("$.rejected[1].row").value(3));
+
+        awaitIngestionIdle();
+        mvc.perform(get("/api/cars/" + carId + "/insurance-valid").param("date", "2032-05-01"))
+                .andExpect(jsonPath("$.valid").value(true));
+        mvc.perform(get("/api/cars/" + carId + "/insurance-valid").param("date", "2031-05-01"))
+                .andExpect(jsonPath("$.valid").value(false));
+    }
+
+    @Test
+    void ingestClaims_writesClaimsToCarHistory() throws Exception {
+        long carId = createCar("VININGEST02");
+        var claims = List.of(
+                Map.of("carId", carId, "claimDate", "2025-02-03", "description", "Hail damage", "amount", 900),
+                Map.of("carId", carId, "claimDate", "03-02-2025", "description", "Bad date", "amount", 100),
+                Map.of("carId", carId, "claimDate", "2025-04-05", "description", "Scratched door", "amount", 150));
+
+        mvc.perform(post("/api/ingest/claims")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(claims)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected[0].message", Matchers.containsString("Invalid date")));
+
+        awaitIngestionIdle();
+        mvc.perform(get("/api/cars/" + carId + "/history"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].description", Matchers.containsString("Scratched door")));
+    }
+
+    @Test
+    void ingestClaims_aRecordThatCannotBeWritten_onlyLosesItselfAndIsListed() throws Exception {
+        long carId = createCar("VININGEST03");
+        // still known to the coverage index, so the record is accepted, but gone when the batch is written
+        long deletedCarId = createCar("VININGEST04");
+        jdbc.update("delete from car where id = ?", deletedCarId);
+        var claims = List.of(
+                Map.of("carId", carId, "claimDate", "2025-02-03", "description", "Hail damage", "amount", 900),
+                Map.of("carId", deletedCarId, "claimDate", "2025-03-04", "description", "Lost car", "amount", 100),
+                Map.of("carId", carId, "claimDate", "2025-04-05", "description", "Scratched door", "amount", 150));
+
+        mvc.perform(post("/api/ingest/claims")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(claims)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(3));
+
+        awaitIngestionIdle();
+        mvc.perform(get("/api/cars/" + carId + "/history"))
+                .andExpect(jsonPath("$.length()").value(2));
+        String failures = mvc.perform(get("/api/ingest/failures"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<JsonNode> lost = new ArrayList<>();
+        for (JsonNode failure : objectMapper.readTree(failures)) {
+            if (failure.get("record").get("carId").asLong() == deletedCarId) {
+                lost.add(failure);
+            }
+        }
+        assertEquals(1, lost.size(), failures);
+        assertEquals("claims", lost.get(0).get("stream").asText());
+        assertEquals("2025-03-04", lost.get(0).get("record").get("claimDate").asText());
+        assertFalse(lost.get(0).get("message").asText().isBlank());
+        assertTrue(lost.get(0).hasNonNull("failedAt"));
+    }
+
+    // Tests for the synthetic data generator
+    @Test
+    void syntheticData_isReproducibleFromTheSeed() throws Exception {
+        // keep generated ids clear of the small ids other tests expect to be unknown
+        jdbc.execute("ALTER SEQUENCE car_seq RESTART WITH 1000000");
+        var spec = new SyntheticDataGenerator.Spec(10, 200, 3, 4, 0.1, 7);
+
+        var first = dataGenerator.generate(spec);
+        var second = dataGenerator.generate(spec);
+
+        assertEquals(first.policies(), second.policies());
+        assertEquals(first.overlappingPolicies(), second.overlappingPolicies());
+        assertEquals(first.claims(), second.claims());
+        assertTrue(first.overlappingPolicies() > 0);
+        assertEquals(first.firstCarId() + 200, second.firstCarId());
+        assertEquals(400, jdbc.queryForObject("select count(*) from car where id >= ?", Integer.class, first.firstCarId()));
+
+        // ids handed out afterwards do not collide with the generated rows (an id block the application reserved
+        // before the sequence restart may still be handed out, below them)
+        long carId = createCar("VINSYNTH01");
+        assertTrue(carId < first.firstCarId() || carId >= second.firstCarId() + 200, "car id " + carId);
+        // the ranges were reserved up front, so the next pooled block of every sequence starts above the generated rows
+        for (String table : List.of("car", "insurancepolicy", "claim")) {
+            String sequence = table.equals("insurancepolicy") ? "policy_seq" : table + "_seq";
+            long nextBlockStart = jdbc.queryForObject("SELECT NEXT VALUE FOR " + sequence, Long.class);
+            assertTrue(nextBlockStart > jdbc.queryForObject("select max(id) from " + table, Long.class), table);
+        }
+    }
+
+    // Tests for the reference data cache
+    @Test
+    void referenceCache_servesRepeatLookupsAndDoesNotCacheMisses() throws Exception {
+        double carHits = cacheHits("cars");
+        long carId = createCar("VINCACHE01");
+
+        createClaim(carId, "2025-01-10", "First dent");
+        createClaim(carId, "2025-01-11", "Second dent");
+
+        assertTrue(cacheHits("cars") > carHits);
+        assertTrue(cacheHits("owners") > 0);
+
+        // the VIN was looked up (and missed) before the car existed, yet it is rejected now
+        Map<String, Object> duplicate = Map.of("vin", "VINCACHE01", "make", "Skoda", "model", "Octavia",
+                "yearOfManufacture", 2022, "ownerId", 1);
+        mvc.perform(post("/api/cars")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(duplicate)))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Tests for request metrics
+    @Test
+    void requestMetrics_recordSqlStatementsPerRequestAndServiceTimings() throws Exception {
+        mvc.perform(get("/api/cars").param("limit", "10").param("afterId", "0"))
+                .andExpect(status().isOk());
+
+        var statements = meterRegistry.find("carins.http.sql.statements").tag("uri", "/api/cars").tag("method", "GET").summary();
+        assertNotNull(statements);
+        assertTrue(statements.count() >= 1);
+        assertTrue(statements.totalAmount() >= 1);
+        var listCars = meterRegistry.find("carins.service").tag("class", CarService.class.getName()).tag("method", "listCars").timer();
+        assertNotNull(listCars);
+        assertTrue(listCars.count() >= 1);
+
+        mvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(Matchers.containsString("carins_http_sql_statements_bucket{method=\"GET\",uri=\"/api/cars\"")))
+                .andExpect(content().string(Matchers.containsString("http_server_requests_seconds_bucket")))
+                .andExpect(content().string(Matchers.containsString("le=\"0.25\"")));
+    }
+
+    @Test
+    void sqlStatementCounter_reportsTheMostRepeatedStatement() {
+        sqlStatementCounter.start();
+        for (long id = 1; id <= 3; id++) {
+            jdbc.queryForObject("select vin from car where id = ?", String.class, id);
+        }
+        jdbc.queryForObject("select count(*) from owner", Integer.class);
+        var stats = sqlStatementCounter.stop();
+
+        assertEquals(4, stats.statements());
+        assertEquals(3, stats.mostRepeatedCount());
+        assertEquals("select vin from car where id = ?", stats.mostRepeated());
+        assertTrue(stats.jdbcNanos() > 0);
+        assertEquals(0, sqlStatementCounter.stop().statements());
+    }
+
+    // Tests for async claim submission
+    @Test
+    void asyncClaim_isWrittenOnceAndRetriesReturnTheSameSubmission() throws Exception {
+        String claim = objectMapper.writeValueAsString(Map.of("claimDate", "2025-07-01", "description", "Hail damage", "amount", 850));
+        MvcResult accepted = mvc.perform(post("/api/cars/2/claims")
+                        .header("Prefer", "respond-async")
+                        .header("Idempotency-Key", "hail-2025-07-01")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(claim))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Preference-Applied", "respond-async"))
+                .andExpect(jsonPath("$.carId").value(2))
+                .andReturn();
+        String trackingId = objectMapper.readTree(accepted.getResponse().getContentAsString()).get("trackingId").asText();
+        assertEquals("/api/cars/2/claims/submissions/" + trackingId, accepted.getResponse().getHeader("Location"));
+
+        mvc.perform(post("/api/cars/2/claims")
+                        .header("Prefer", "respond-async")
+                        .header("Idempotency-Key", "hail-2025-07-01")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(claim))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.trackingId").value(trackingId));
+
+        long claimId = awaitSubmissionWritten(2L, trackingId);
+        assertEquals(1, jdbc.queryForObject("select count(*) from claim where submission_id = ?", Integer.class, trackingId));
+        assertEquals(claimId, jdbc.queryForObject("select id from claim where submission_id = ?", Long.class, trackingId));
+
+        // a late retry still gets the original claim back
+        mvc.perform(post("/api/cars/2/claims")
+                        .header("Prefer", "respond-async")
+                        .header("Idempotency-Key", "hail-2025-07-01")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(claim))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("WRITTEN"))
+                .andExpect(jsonPath("$.claimId").value(claimId));
+
+        mvc.perform(post("/api/cars/2/claims")
+                        .header("Prefer", "respond-async")
+                        .header("Idempotency-Key", "hail-2025-07-01")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("claimDate", "2025-07-01", "description", "Hail damage", "amount", 900))))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    void asyncClaim_rejectsUnknownCarsAndSubmissions() throws Exception {
+        mvc.perform(post("/api/cars/999/claims")
+                        .header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("claimDate", "2025-07-01", "description", "Hail", "amount", 100))))
+                .andExpect(status().isNotFound());
+        mvc.perform(post("/api/cars/1/claims")
+                        .header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("claimDate", "2025-13-01", "description", "Hail", "amount", 100))))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/cars/1/claims/submissions/unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void asyncClaim_isChosenByTheRespondAsyncPreferenceAmongOthers() throws Exception {
+        String claim = objectMapper.writeValueAsString(Map.of("claimDate", "2025-07-02", "description", "Hail", "amount", 100));
+        mvc.perform(post("/api/cars/2/claims")
+                        .header("Prefer", "respond-async, wait=10")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(claim))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Preference-Applied", "respond-async"));
+        mvc.perform(post("/api/cars/2/claims")
+                        .header("Prefer", "return=minimal", "Respond-Async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(claim))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Preference-Applied", "respond-async"));
+        mvc.perform(post("/api/cars/2/claims")
+                        .header("Prefer", "return=representation; charset=utf-8, wait=10")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(claim))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Preference-Applied"));
+    }
+
+    @Test
+    void claimSubmissions_pendingInTheJournalAreWrittenOnceAfterARestart(@TempDir Path journalDir) throws Exception {
+        long now = System.currentTimeMillis();
+        Files.writeString(journalDir.resolve("claims.journal"),
+                "{\"type\":\"SUBMITTED\",\"trackingId\":\"replay-pending\",\"carId\":1,\"claimDate\":\"2025-08-01\",\"description\":\"Replayed\",\"amount\":120,\"receivedAt\":" + now + "}\n"
+                + "{\"type\":\"SUBMITTED\",\"trackingId\":\"replay-written\",\"carId\":1,\"claimDate\":\"2025-08-02\",\"description\":\"Done\",\"amount\":80,\"receivedAt\":" + now + "}\n"
+                + "{\"type\":\"WRITTEN\",\"trackingId\":\"replay-written\",\"claimId\":424242}\n"
+                // torn by a crash mid-write
+                + "{\"type\":\"SUBMITTED\",\"trackingId\":\"replay-to");
+
+        for (int restart = 0; restart < 2; restart++) {
+            ClaimSubmissionService submissions = new ClaimSubmissionService(referenceData, claimRepository, claimAnalytics, claimSnapshot, resourceVersions, entityManager,
+                    transactionManager, 100, 10, Duration.ofMillis(10), journalDir.toString(), DataSize.ofMegabytes(1),
+                    Duration.ofHours(1), false);
+            submissions.start();
+            try {
+                assertEquals(ClaimSubmissionStatus.WRITTEN, submissions.status(1L, "replay-pending").status());
+                assertEquals(424242L, submissions.status(1L, "replay-written").claimId());
+            } finally {
+                submissions.stop();
+            }
+        }
+        assertEquals(1, jdbc.queryForObject("select count(*) from claim where submission_id = 'replay-pending'", Integer.class));
+        assertEquals(0, jdbc.queryForObject("select count(*) from claim where submission_id = 'replay-written'", Integer.class));
+    }
+
+    @Test
+    void claimSubmissions_forgetIdempotencyKeysAfterTheRetention(@TempDir Path journalDir) throws Exception {
+        ClaimSubmissionService submissions = new ClaimSubmissionService(referenceData, claimRepository, claimAnalytics, claimSnapshot, resourceVersions, entityManager,
+                transactionManager, 100, 10, Duration.ofMillis(10), journalDir.toString(), DataSize.ofMegabytes(1),
+                Duration.ofMillis(200), false);
+        submissions.start();
+        try {
+            var first = submissions.submit(1L, new ClaimCreateRequestDto("2025-09-01", "Hail", new BigDecimal("100")), "storm-1");
+            while (submissions.status(1L, first.trackingId()).status() == ClaimSubmissionStatus.PENDING) {
+                Thread.sleep(10);
+            }
+            assertThrows(IdempotencyKeyMismatchException.class, () ->
+                    submissions.submit(1L, new ClaimCreateRequestDto("2025-09-01", "Flood", new BigDecimal("100")), "storm-1"));
+
+            Thread.sleep(300);
+            // an expired key is a new submission, even before the sweep has run
+            var second = submissions.submit(1L, new ClaimCreateRequestDto("2025-09-01", "Flood", new BigDecimal("100")), "storm-1");
+            assertNotEquals(first.trackingId(), second.trackingId());
+
+            submissions.forgetExpired();
+            assertThrows(ClaimSubmissionNotFoundException.class, () -> submissions.status(1L, first.trackingId()));
+            assertEquals(second.trackingId(), submissions.status(1L, second.trackingId()).trackingId());
+        } finally {
+            submissions.stop();
+        }
+    }
+
+    // Tests for claim analytics
+    @Test
+    void claimAnalytics_aggregatesClaimsByCarProviderAndMonth() throws Exception {
+        long carId = createCar("VINSTATS01");
+        mvc.perform(post("/api/policies")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("carId", carId, "provider", "Claimwise",
+                                "startDate", "2040-01-01", "endDate", "2040-06-30"))))
+                .andExpect(status().isCreated());
+        var claims = new ArrayList<Map<String, Object>>();
+        for (int i = 1; i <= 100; i++) {
+            claims.add(Map.of("carId", carId, "claimDate", i <= 50 ? "2040-03-15" : "2040-09-15",
+                    "description", "Claim " + i, "amount", i * 10));
+        }
+        mvc.perform(post("/api/ingest/claims")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(claims)))
+                .andExpect(status().isAccepted());
+        awaitIngestionIdle();
+        createClaim(carId, "2040-04-01", "Cracked mirror");
+
+        // amounts 10, 20, ..., 1000 plus 250: the median is 500
+        MvcResult byCar = mvc.perform(get("/api/claims/analytics").param("groupBy", "car").param("key", String.valueOf(carId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].count").value(101))
+                .andExpect(jsonPath("$[0].total").value(50750.00))
+                .andExpect(jsonPath("$[0].p50", Matchers.closeTo(500.0, 5.0)))
+                .andExpect(jsonPath("$[0].p99", Matchers.closeTo(990.0, 9.9)))
+                .andReturn();
+        mvc.perform(get("/api/claims/analytics").param("groupBy", "provider").param("key", "Claimwise").param("bucket", "month"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].period").value("2040-03"))
+                .andExpect(jsonPath("$[0].count").value(50))
+                .andExpect(jsonPath("$[1].period").value("2040-04"))
+                .andExpect(jsonPath("$[1].total").value(250.00));
+        mvc.perform(get("/api/claims/analytics").param("groupBy", "provider").param("key", "(none)")
+                        .param("from", "2040-09").param("to", "2040-09"))
+                .andExpect(jsonPath("$[0].count").value(50))
+                .andExpect(jsonPath("$[0].total").value(37750.00));
+
+        // rebuilding from the database gives what was maintained incrementally
+        claimAnalytics.rebuild();
+        mvc.perform(get("/api/claims/analytics").param("groupBy", "car").param("key", String.valueOf(carId)))
+                .andExpect(content().json(byCar.getResponse().getContentAsString(), JsonCompareMode.STRICT));
+    }
+
+    @Test
+    void claimAnalytics_keepsClaimsWrittenWhileRebuilding() throws Exception {
+        long carId = createCar("VINSTATS02");
+        int claims = 40;
+        AtomicInteger written = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> rebuilds = executor.submit(() -> {
+                while (written.get() < claims) {
+                    claimAnalytics.rebuild();
+                }
+            });
+            for (int i = 0; i < claims; i++) {
+                createClaim(carId, "2040-05-01", "Claim " + i);
+                written.incrementAndGet();
+            }
+            rebuilds.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        mvc.perform(get("/api/claims/analytics").param("groupBy", "car").param("key", String.valueOf(carId)))
+                .andExpect(jsonPath("$[0].count").value(claims));
+    }
+
+    @Test
+    void claimAnalytics_rejectsInvalidQueries() throws Exception {
+        mvc.perform(get("/api/claims/analytics").param("groupBy", "colour"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/claims/analytics").param("groupBy", "owner").param("bucket", "month"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/claims/analytics").param("groupBy", "make-model").param("from", "2040-13"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/claims/analytics").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Tests for the columnar claim snapshot
+    @Test
+    void claimScan_filtersAndAggregatesTheSnapshot() throws Exception {
+        long carId = createCar("VINSCAN01");
+        var claims = new ArrayList<Map<String, Object>>();
+        for (int i = 1; i <= 10; i++) {
+            claims.add(Map.of("carId", carId, "claimDate", "2041-01-" + String.format("%02d", i),
+                    "description", i % 2 == 0 ? "Scan test: hail" : "Scan test: flood", "amount", i * 100));
+        }
+        mvc.perform(post("/api/ingest/claims")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(claims)))
+                .andExpect(status().isAccepted());
+        awaitIngestionIdle();
+        createClaim(carId, "2041-02-01", "Scan test: mirror");
+
+        mvc.perform(get("/api/claims/scan").param("carId", String.valueOf(carId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.matched").value(11))
+                .andExpect(jsonPath("$.total").value(5750.00));
+        for (int reload = 0; reload < 2; reload++) {
+            mvc.perform(get("/api/claims/scan").param("carId", String.valueOf(carId))
+                            .param("description", "HAIL").param("from", "2041-01-03").param("to", "2041-01-08")
+                            .param("minAmount", "500"))
+                    .andExpect(jsonPath("$.matched").value(2))
+                    .andExpect(jsonPath("$.min").value(600.00))
+                    .andExpect(jsonPath("$.max").value(800.00))
+                    .andExpect(jsonPath("$.average").value(700.00));
+            // a reload reads the same claims back from the database
+            claimSnapshot.reload();
+        }
+        mvc.perform(get("/api/claims/scan").param("carId", String.valueOf(carId)))
+                .andExpect(jsonPath("$.matched").value(11));
+    }
+
+    @Test
+    void claimScan_rejectsInvertedRanges() throws Exception {
+        mvc.perform(get("/api/claims/scan").param("from", "2025-02-01").param("to", "2025-01-01"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/claims/scan").param("minAmount", "10").param("maxAmount", "5"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/claims/scan").param("from", "01-01-2025"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Tests for the owner portfolio
+    @Test
+    void ownerPortfolio_pagesCarsWithCurrentPolicyAndClaimTotals() throws Exception {
+        mvc.perform(get("/api/owners/2/portfolio").param("date", "2025-06-01").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "2"))
+                .andExpect(jsonPath("$.name").value("Bogdan Ionescu"))
+                .andExpect(jsonPath("$.cars.length()").value(1))
+                .andExpect(jsonPath("$.cars[0].vin").value("VIN67890"))
+                .andExpect(jsonPath("$.cars[0].currentPolicy.provider").value("Allianz"));
+        mvc.perform(get("/api/owners/2/portfolio").param("date", "2025-06-01").param("afterCarId", "2").param("limit", "1"))
+                .andExpect(jsonPath("$.cars[0].id").value(3))
+                .andExpect(jsonPath("$.cars[0].currentPolicy").doesNotExist());
+
+        long carId = createCar("VINPORTF01");
+        createClaim(carId, "2025-03-01", "Dented bumper");
+        createClaim(carId, "2025-04-01", "Broken light");
+        mvc.perform(get("/api/owners/1/portfolio").param("afterCarId", String.valueOf(carId - 1)).param("limit", "1"))
+                .andExpect(jsonPath("$.cars[0].id").value(carId))
+                .andExpect(jsonPath("$.cars[0].claimCount").value(2))
+                .andExpect(jsonPath("$.cars[0].claimTotal").value(500.00));
+        mvc.perform(get("/api/owners/999/portfolio"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void ownerPortfolio_runsTheSameQueriesWhateverThePageSize() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            createClaim(createCar("VINPORTF1" + i), "2025-05-01", "Flat tyre");
+        }
+        ownerPortfolioService.getPortfolio(1L, LocalDate.parse("2025-06-01"), 0L, 1);
+        sqlStatementCounter.start();
+        ownerPortfolioService.getPortfolio(1L, LocalDate.parse("2025-06-01"), 0L, 1);
+        int onePage = sqlStatementCounter.stop().statements();
+        sqlStatementCounter.start();
+        var portfolio = ownerPortfolioService.getPortfolio(1L, LocalDate.parse("2025-06-01"), 0L, 4);
+        int fourPage = sqlStatementCounter.stop().statements();
+
+        assertEquals(4, portfolio.cars().size());
+        assertEquals(onePage, fourPage);
+        assertTrue(fourPage <= 4, "portfolio page took " + fourPage + " statements");
+    }
+
+    // Tests for the coverage report
+    @Test
+    void uninsuredReport_streamsCarsWithoutPolicyOnDateAsCsv() throws Exception {
+        String csv = streamedBody(get("/api/reports/uninsured").param("date", "2025-06-01"), "text/csv");
+        List<String> lines = csv.lines().toList();
+        assertEquals("carId,vin,make,model,yearOfManufacture,ownerId,ownerName,ownerEmail", lines.get(0));
+        assertTrue(lines.contains("3,VIN31483,Honda,Civic,2016,2,Bogdan Ionescu,bogdan.ionescu@example.com"), csv);
+        assertTrue(lines.stream().noneMatch(line -> line.startsWith("1,") || line.startsWith("2,")), csv);
+
+        String ndjson = streamedBody(get("/api/reports/uninsured").param("date", "2025-02-01")
+                .accept(MediaType.APPLICATION_NDJSON), MediaType.APPLICATION_NDJSON_VALUE);
+        List<Long> ids = new ArrayList<>();
+        for (String line : ndjson.lines().toList()) {
+            ids.add(objectMapper.readTree(line).get("id").asLong());
+        }
+        assertTrue(ids.contains(2L) && ids.contains(3L) && !ids.contains(1L), ndjson);
+        assertEquals(ids.stream().sorted().toList(), ids);
+    }
+
+    @Test
+    void uninsuredDailyCounts_followPolicyStartAndEnd() throws Exception {
+        long carId = createCar("VINREPORT01");
+        createPolicy(carId, "2031-03-01", "2031-03-02");
+        String ndjson = streamedBody(get("/api/reports/uninsured/daily").param("from", "2031-02-28").param("to", "2031-03-03")
+                .accept(MediaType.APPLICATION_NDJSON), MediaType.APPLICATION_NDJSON_VALUE);
+        List<JsonNode> days = new ArrayList<>();
+        for (String line : ndjson.lines().toList()) {
+            days.add(objectMapper.readTree(line));
+        }
+        assertEquals(4, days.size());
+        assertEquals("2031-02-28", days.get(0).get("date").asText());
+        for (JsonNode day : days) {
+            assertEquals(day.get("cars").asLong(), day.get("insured").asLong() + day.get("uninsured").asLong());
+        }
+        assertTrue(days.get(1).get("insured").asLong() >= days.get(0).get("insured").asLong() + 1);
+        assertEquals(days.get(1).get("insured").asLong(), days.get(2).get("insured").asLong());
+        assertEquals(days.get(2).get("insured").asLong() - 1, days.get(3).get("insured").asLong());
+
+        String csv = streamedBody(get("/api/reports/uninsured/daily").param("from", "2025-02-28").param("to", "2025-03-01"), "text/csv");
+        assertTrue(csv.startsWith("date,cars,insured,uninsured\n2025-02-28,"), csv);
+    }
+
+    @Test
+    void uninsuredReport_rejectsBadDatesAndRanges() throws Exception {
+        mvc.perform(get("/api/reports/uninsured").param("date", "2025-13-01"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/reports/uninsured/daily").param("from", "2025-03-02").param("to", "2025-03-01"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/reports/uninsured/daily").param("from", "2000-01-01").param("to", "2025-01-01"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Tests for conditional GETs
+    @Test
+    void insuranceValidity_withCurrentEtag_returnsNotModifiedWithoutQueries() throws Exception {
+        long carId = createCar("VINETAG01");
+        String etag = mvc.perform(get("/api/cars/" + carId + "/insurance-valid").param("date", "2031-06-01"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=60, must-revalidate"))
+                .andExpect(jsonPath("$.valid").value(false))
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+
+        sqlStatementCounter.start();
+        mvc.perform(get("/api/cars/" + carId + "/insurance-valid").param("date", "2031-06-01").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""));
+        assertEquals(0, sqlStatementCounter.stop().statements());
+
+        createPolicy(carId, "2031-01-01", "2031-12-31");
+        mvc.perform(get("/api/cars/" + carId + "/insurance-valid").param("date", "2031-06-01").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", Matchers.not(etag)))
+                .andExpect(jsonPath("$.valid").value(true));
+    }
+
+    @Test
+    void carHistoryAndCars_etagsChangeWithWrites() throws Exception {
+        long carId = createCar("VINETAG02");
+        String historyTag = mvc.perform(get("/api/cars/" + carId + "/history"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andReturn().getResponse().getHeader("ETag");
+        mvc.perform(get("/api/cars/" + carId + "/history").header("If-None-Match", historyTag))
+                .andExpect(status().isNotModified());
+        createClaim(carId, "2025-05-01", "Scratched door");
+        mvc.perform(get("/api/cars/" + carId + "/history").header("If-None-Match", historyTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+
+        String carsTag = mvc.perform(get("/api/cars").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        mvc.perform(get("/api/cars").param("limit", "2").header("If-None-Match", carsTag))
+                .andExpect(status().isNotModified());
+        createCar("VINETAG03");
+        mvc.perform(get("/api/cars").param("limit", "2").header("If-None-Match", carsTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", Matchers.not(carsTag)));
+        mvc.perform(get("/api/cars/999999/history").header("If-None-Match", resourceVersions.carTag(999999L)))
+                .andExpect(status().isNotFound());
+    }
+
+    // Tests for optimistic policy updates
+    @Test
+    void updatePolicy_withIfMatch_appliesOnlyToTheCurrentVersion() throws Exception {
+        long carId = createCar("VINVERSION01");
+        long policyId = createPolicy(carId, "2030-01-01", "2030-12-31");
+        String etag = mvc.perform(get("/api/policies/" + policyId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.endDate").value("2030-12-31"))
+                .andReturn().getResponse().getHeader("ETag");
+        assertEquals("\"0\"", etag);
+
+        String update = "{\"carId\":" + carId + ",\"provider\":\"Groupama\",\"startDate\":\"2030-01-01\",\"endDate\":\"2031-06-30\"}";
+        mvc.perform(put("/api/policies/" + policyId).header("If-Match", etag)
+                        .contentType(MediaType.APPLICATION_JSON).content(update))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""));
+        mvc.perform(put("/api/policies/" + policyId).header("If-Match", etag)
+                        .contentType(MediaType.APPLICATION_JSON).content(update.replace("Groupama", "Allianz")))
+                .andExpect(status().isPreconditionFailed());
+        mvc.perform(put("/api/policies/" + policyId).header("If-Match", "W/\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON).content(update))
+                .andExpect(status().isPreconditionFailed());
+        mvc.perform(get("/api/policies/" + policyId))
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.provider").value("Groupama"));
+
+        mvc.perform(post("/api/policies/" + policyId + "/extend").param("days", "0"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(post("/api/policies/" + policyId + "/extend").param("days", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""))
+                .andExpect(jsonPath("$.endDate").value("2031-07-01"));
+    }
+
+    @Test
+    void extendPolicy_fromManyThreads_losesNoUpdates() throws Exception {
+        long carId = createCar("VINVERSION02");
+        long policyId = createPolicy(carId, "2030-01-01", "2030-01-31");
+        int threads = 8;
+        int extensionsPerThread = 25;
+        AtomicInteger applied = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(executor.submit(() -> {
+                    for (int i = 0; i < extensionsPerThread; i++) {
+                        try {
+                            policyService.extendPolicy(policyId, 1);
+                            applied.incrementAndGet();
+                        } catch (OptimisticLockingFailureException ex) {
+                            // retries ran out: reported to the caller, never dropped silently
+                            conflicts.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(threads * extensionsPerThread, applied.get() + conflicts.get());
+        assertTrue(applied.get() > 0);
+        var policy = policyService.getPolicy(policyId);
+        assertEquals(LocalDate.parse("2030-01-31").plusDays(applied.get()), policy.policy().endDate());
+        assertEquals(applied.get(), policy.version());
+    }
+
+    // Tests for policy overlap detection
+    @Test
+    void createPolicy_overlappingAnother_isFlaggedAndListedByTheAudit() throws Exception {
+        long carId = createCar("VINOVERLAP01");
+        long first = createPolicy(carId, "2032-01-01", "2032-06-30");
+        String overlapping = "{\"carId\":" + carId + ",\"provider\":\"Allianz\",\"startDate\":\"2032-06-01\",\"endDate\":\"2032-12-31\"}";
+        String created = mvc.perform(post("/api/policies").contentType(MediaType.APPLICATION_JSON).content(overlapping))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("X-Overlapping-Policies", String.valueOf(first)))
+                .andReturn().getResponse().getContentAsString();
+        long second = objectMapper.readTree(created).get("id").asLong();
+
+        String audit = streamedBody(get("/api/policies/overlaps").accept(MediaType.APPLICATION_NDJSON), MediaType.APPLICATION_NDJSON_VALUE);
+        List<JsonNode> overlaps = new ArrayList<>();
+        for (String line : audit.lines().toList()) {
+            JsonNode overlap = objectMapper.readTree(line);
+            if (overlap.get("carId").asLong() == carId) {
+                overlaps.add(overlap);
+            }
+        }
+        assertEquals(1, overlaps.size(), audit);
+        assertEquals(second, overlaps.get(0).get("policyId").asLong());
+        assertEquals(first, overlaps.get(0).get("otherPolicyId").asLong());
+        assertEquals("2032-06-01", overlaps.get(0).get("overlapStart").asText());
+        assertEquals("2032-06-30", overlaps.get(0).get("overlapEnd").asText());
+
+        mvc.perform(put("/api/policies/" + second).contentType(MediaType.APPLICATION_JSON)
+                        .content(overlapping.replace("2032-06-01", "2032-07-01")))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Overlapping-Policies"));
+        String json = streamedBody(get("/api/policies/overlaps"), MediaType.APPLICATION_JSON_VALUE);
+        for (JsonNode overlap : objectMapper.readTree(json)) {
+            assertNotEquals(carId, overlap.get("carId").asLong());
+        }
+    }
+
+    @Test
+    void overlapCheck_inRejectMode_refusesOverlapsAndVersionsTheCar() throws Exception {
+        long carId = createCar("VINOVERLAP02");
+        long existing = createPolicy(carId, "2033-03-01", "2033-03-31");
+        PolicyOverlapService rejecting = new PolicyOverlapService(policyRepository, carRepository, entityManager, "reject");
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        PolicyOverlapException rejected = assertThrows(PolicyOverlapException.class, () -> tx.executeWithoutResult(status ->
+                rejecting.check(entityManager.find(Car.class, carId), null, LocalDate.parse("2033-03-31"), LocalDate.parse("2033-04-30"))));
+        assertTrue(rejected.getMessage().contains(String.valueOf(existing)), rejected.getMessage());
+        // the policy being updated does not overlap itself
+        tx.executeWithoutResult(status -> assertEquals(List.of(), rejecting.check(entityManager.find(Car.class, carId), existing,
+                LocalDate.parse("2033-02-01"), LocalDate.parse("2033-03-15"))));
+
+        long versionBefore = tx.execute(status -> entityManager.find(Car.class, carId).getVersion());
+        tx.executeWithoutResult(status -> rejecting.check(entityManager.find(Car.class, carId), null,
+                LocalDate.parse("2033-04-01"), LocalDate.parse("2033-04-30")));
+        long versionAfter = tx.execute(status -> entityManager.find(Car.class, carId).getVersion());
+        assertEquals(versionBefore + 1, versionAfter);
+    }
+
+    // Tests for the fast JSON writers
+    @Test
+    void fastJsonWriters_writeTheSameJsonAsTheObjectMapper() throws Exception {
+        List<CarDto> cars = List.of(
+                new CarDto(1L, "VIN12345", "Dacia", "Logan", 2018, 1L, "Ana Pop", "ana.pop@example.com"),
+                new CarDto(2L, "VIN\"quoted\"", null, "Gol\u00e9f", 2021, 2L, "Bogdan\nIonescu", null));
+        assertEquals(objectMapper.writeValueAsString(cars), fastJson(FastJsonWriters.cars(cars)));
+
+        List<CarHistoryRow> rows = List.of(
+                new PolicyHistoryRow(3L, "Allianz \"Plus\"", LocalDate.parse("2025-03-01"), LocalDate.parse("2025-09-30")),
+                new ClaimHistoryRow(4L, LocalDate.parse("2025-04-09"), "Hail\tdamage \u2013 roof", new BigDecimal("850.50")),
+                new PolicyHistoryRow(5L, null, LocalDate.parse("0999-01-01"), LocalDate.parse("+10000-01-01")));
+        assertEquals(objectMapper.writeValueAsString(rows.stream().map(CarHistoryRow::toDto).toList()),
+                fastJson(FastJsonWriters.history(rows)));
+
+        assertEquals(objectMapper.writeValueAsString(new CarController.InsuranceValidityResponse(1L, "2025-06-01", true)),
+                fastJson(FastJsonWriters.validity(1L, LocalDate.parse("2025-06-01"), true)));
+    }
+
+    // Tests for CBOR content negotiation
+    @Test
+    void carReads_negotiateCborWithTheSameContentAsJson() throws Exception {
+        ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+        for (String uri : List.of("/api/cars", "/api/cars?limit=2", "/api/cars/1/history", "/api/cars/1/insurance-valid?date=2025-06-01")) {
+            MvcResult json = mvc.perform(get(uri))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                    .andReturn();
+            MvcResult binary = mvc.perform(get(uri).accept(MediaType.APPLICATION_CBOR))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                    .andExpect(header().stringValues("Vary", Matchers.hasItem("Accept")))
+                    .andReturn();
+            byte[] body = binary.getResponse().getContentAsByteArray();
+            assertEquals(objectMapper.readTree(json.getResponse().getContentAsString()), cbor.readTree(body), uri);
+            assertTrue(body.length < json.getResponse().getContentAsByteArray().length, uri);
+
+            // each format is validated against its own tag
+            String jsonTag = json.getResponse().getHeader("ETag");
+            String cborTag = binary.getResponse().getHeader("ETag");
+            assertEquals(jsonTag.substring(0, jsonTag.length() - 1) + "-cbor\"", cborTag, uri);
+            mvc.perform(get(uri).accept(MediaType.APPLICATION_CBOR).header("If-None-Match", cborTag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string("ETag", cborTag));
+            mvc.perform(get(uri).header("If-None-Match", cborTag))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", jsonTag));
+            mvc.perform(get(uri).accept(MediaType.APPLICATION_CBOR).header("If-None-Match", jsonTag))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    void policyAndClaimWrites_acceptCborBodies() throws Exception {
+        ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+        long carId = createCar("VINCBOR00001");
+        Map<String, Object> policy = new HashMap<>();
+        policy.put("carId", carId);
+        policy.put("provider", "Allianz");
+        policy.put("startDate", "2031-01-01");
+        policy.put("endDate", "2031-12-31");
+        MvcResult created = mvc.perform(post("/api/policies")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .content(cbor.writeValueAsBytes(policy)))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andReturn();
+        JsonNode createdPolicy = cbor.readTree(created.getResponse().getContentAsByteArray());
+        assertEquals("2031-12-31", createdPolicy.get("endDate").asText());
+
+        policy.put("endDate", "2032-06-30");
+        mvc.perform(put("/api/policies/" + createdPolicy.get("id").asLong())
+                        .header("If-Match", "\"0\"")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .content(cbor.writeValueAsBytes(policy)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.endDate").value("2032-06-30"));
+
+        Map<String, Object> claim = new HashMap<>();
+        claim.put("claimDate", "2031-02-01");
+        claim.put("description", "Scratched door");
+        claim.put("amount", new BigDecimal("120.50"));
+        MvcResult claimed = mvc.perform(post("/api/cars/" + carId + "/claims")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .content(cbor.writeValueAsBytes(claim)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        JsonNode createdClaim = cbor.readTree(claimed.getResponse().getContentAsByteArray());
+        assertEquals(0, new BigDecimal("120.50").compareTo(createdClaim.get("amount").decimalValue()));
+        assertEquals("Scratched door", createdClaim.get("description").asText());
+
+        claim.remove("description");
+        mvc.perform(post("/api/cars/" + carId + "/claims")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .content(cbor.writeValueAsBytes(claim)))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    private double cacheHits(String cache) {
+        var gets = meterRegistry.find("cache.gets").tag("cache", cache).tag("result", "hit").functionCounter();
+        assertNotNull(gets, "no metrics bound for cache " + cache);
+        return gets.count();
+    }
+
+    private long awaitSubmissionWritten(long carId, String trackingId) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            MvcResult result = mvc.perform(get("/api/cars/" + carId + "/claims/submissions/" + trackingId))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            var submission = objectMapper.readTree(result.getResponse().getContentAsString());
+            if ("WRITTEN".equals(submission.get("status").asText())) {
+                return submission.get("claimId").asLong();
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Claim submission " + trackingId + " was not written in time");
+    }
+
+    private void awaitIngestionIdle() throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            String status = mvc.perform(get("/api/ingest/status")).andReturn().getResponse().getContentAsString();
+            boolean idle = true;
+            for (var stream : objectMapper.readTree(status)) {
+                idle &= stream.get("pending").asLong() == 0;
+            }
+            if (idle) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        fail("ingestion did not finish in time");
+    }
+
+    private String fastJson(FastJsonBody body) throws Exception {
+        StringWriter out = new StringWriter();
+        try (var generator = objectMapper.getFactory().createGenerator(out)) {
+            body.writeTo(generator);
+        }
+        return out.toString();
+    }
+
+    private String streamedBody(MockHttpServletRequestBuilder request, String contentType) throws Exception {
+        MvcResult result = mvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(contentType))
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private long createCar(String vin) throws Exception {
+        Map<String, Object> carMap = new HashMap<>();
+        carMap.put("vin", vin);
+        carMap.put("make", "Skoda");
+        carMap.put("model", "Octavia");
+        carMap.put("yearOfManufacture", 2022);
+        carMap.put("ownerId", 1L);
+
+        String response = mvc.perform(post("/api/cars")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(carMap)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("id").asLong();
+    }
+
+    private void createClaim(long carId, String date, String description) throws Exception {
+        Map<String, Object> claimMap = new HashMap<>();
+        claimMap.put("claimDate", date);
+        claimMap.put("description", description);
+        claimMap.put("amount", 250.0);
+
+        mvc.perform(post("/api/cars/" + carId + "/claims")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(claimMap)))
+                .andExpect(status().isCreated());
+    }
+
+    private long createPolicy(long carId, String startDate, String endDate) throws Exception {
+        var policy = new HashMap<String, Object>();
+        policy.put("carId", carId);
+        policy.put("provider", "Allianz");
+        policy.put("startDate", startDate);
+        policy.put("endDate", endDate);
+
+        String response = mvc.perform(post("/api/policies")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(policy)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("id").asLong();
+    }
 }
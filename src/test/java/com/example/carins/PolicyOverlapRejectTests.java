@@ -0,0 +1,182 @@
+package com.example.carins;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// overlap checks in reject mode, through the HTTP API and against its own database
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:carins-reject;DB_CLOSE_DELAY=-1",
+        "carins.claims.journal.dir=target/claim-journal/${random.uuid}",
+        "carins.policies.overlap-mode=reject",
+        "carins.policies.update.max-attempts=50"})
+@AutoConfigureMockMvc
+class PolicyOverlapRejectTests {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Test
+    void overlappingWrites_areRefusedWithConflict() throws Exception {
+        long carId = createCar("VINREJECT001");
+        long existing = createPolicy(carId, "2034-01-01", "2034-06-30");
+        long versionBefore = carVersion(carId);
+
+        mvc.perform(post("/api/policies").contentType(MediaType.APPLICATION_JSON)
+                        .content(policy(carId, "2034-06-30", "2034-12-31")))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value(Matchers.containsString(String.valueOf(existing))));
+
+        // the car reference is a lazy proxy; locking it still bumps the car's version
+        long other = createPolicy(carId, "2034-07-01", "2034-12-31");
+        assertEquals(versionBefore + 1, carVersion(carId));
+
+        mvc.perform(put("/api/policies/" + other).contentType(MediaType.APPLICATION_JSON)
+                        .content(policy(carId, "2034-06-01", "2034-12-31")))
+                .andExpect(status().isConflict());
+        mvc.perform(put("/api/policies/" + other).header("If-Match", "\"0\"").contentType(MediaType.APPLICATION_JSON)
+                        .content(policy(carId, "2034-06-01", "2034-12-31")))
+                .andExpect(status().isConflict());
+        assertEquals(2, jdbc.queryForObject("select count(*) from insurancepolicy where car_id = ?", Integer.class, carId));
+    }
+
+    @Test
+    void ifMatchUpdates_toDifferentPoliciesOfOneCar_neverFailTheirPrecondition() throws Exception {
+        long carId = createCar("VINREJECT002");
+        int policies = 6;
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < policies; i++) {
+            ids.add(createPolicy(carId, (2040 + i) + "-01-01", (2040 + i) + "-06-30"));
+        }
+
+        // each update bumps the car's version, so the others lose a race on the car, not on their own policy
+        ExecutorService executor = Executors.newFixedThreadPool(policies);
+        try {
+            List<Future<Integer>> statuses = new ArrayList<>();
+            for (int i = 0; i < policies; i++) {
+                long policyId = ids.get(i);
+                String body = policy(carId, (2040 + i) + "-01-01", (2040 + i) + "-12-31");
+                statuses.add(executor.submit(() -> mvc.perform(put("/api/policies/" + policyId).header("If-Match", "\"0\"")
+                                .contentType(MediaType.APPLICATION_JSON).content(body))
+                        .andReturn().getResponse().getStatus()));
+            }
+            for (Future<Integer> status : statuses) {
+                assertEquals(200, status.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for (int i = 0; i < policies; i++) {
+            mvc.perform(get("/api/policies/" + ids.get(i)))
+                    .andExpect(header().string("ETag", "\"1\""))
+                    .andExpect(jsonPath("$.endDate").value((2040 + i) + "-12-31"));
+        }
+    }
+
+    @Test
+    void ingestedPolicies_overlappingStoredOrEarlierOnes_areRejectedAndListed() throws Exception {
+        long carId = createCar("VINREJECT003");
+        long otherCarId = createCar("VINREJECT004");
+        long existing = createPolicy(carId, "2036-01-01", "2036-06-30");
+        long versionBefore = carVersion(carId);
+        var policies = List.of(
+                Map.of("carId", carId, "provider", "Allianz", "startDate", "2036-06-01", "endDate", "2036-07-31"),
+                Map.of("carId", carId, "provider", "Groupama", "startDate", "2036-08-01", "endDate", "2036-12-31"),
+                Map.of("carId", carId, "provider", "Omniasig", "startDate", "2036-12-01", "endDate", "2037-03-31"),
+                Map.of("carId", otherCarId, "provider", "Allianz", "startDate", "2036-06-01", "endDate", "2036-07-31"));
+
+        mvc.perform(post("/api/ingest/policies").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(policies)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(4));
+        awaitIngestionIdle();
+
+        assertEquals(List.of("Allianz", "Groupama"), jdbc.queryForList(
+                "select provider from insurancepolicy where car_id = ? order by start_date", String.class, carId));
+        assertEquals(1, jdbc.queryForObject("select count(*) from insurancepolicy where car_id = ?", Integer.class, otherCarId));
+        assertTrue(carVersion(carId) > versionBefore);
+
+        JsonNode failures = objectMapper.readTree(mvc.perform(get("/api/ingest/failures"))
+                .andReturn().getResponse().getContentAsString());
+        List<String> reasons = new ArrayList<>();
+        for (JsonNode failure : failures) {
+            if (failure.get("record").get("carId").asLong() == carId) {
+                reasons.add(failure.get("record").get("provider").asText() + ": " + failure.get("message").asText());
+            }
+        }
+        assertEquals(2, reasons.size(), reasons.toString());
+        assertTrue(reasons.get(0).startsWith("Allianz") && reasons.get(0).contains("[" + existing + "]"), reasons.get(0));
+        assertTrue(reasons.get(1).startsWith("Omniasig") && reasons.get(1).contains("same ingestion batch"), reasons.get(1));
+        JsonNode policyStream = objectMapper.readTree(mvc.perform(get("/api/ingest/status"))
+                .andReturn().getResponse().getContentAsString()).get(0);
+        assertEquals("policies", policyStream.get("stream").asText());
+        assertTrue(policyStream.get("rejected").asLong() >= 2);
+    }
+
+    private void awaitIngestionIdle() throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            boolean idle = true;
+            for (JsonNode stream : objectMapper.readTree(mvc.perform(get("/api/ingest/status")).andReturn().getResponse().getContentAsString())) {
+                idle &= stream.get("pending").asLong() == 0;
+            }
+            if (idle) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        fail("ingestion did not finish in time");
+    }
+
+    private long carVersion(long carId) {
+        return jdbc.queryForObject("select version from car where id = ?", Long.class, carId);
+    }
+
+    private String policy(long carId, String startDate, String endDate) throws Exception {
+        return objectMapper.writeValueAsString(Map.of("carId", carId, "provider", "Allianz", "startDate", startDate, "endDate", endDate));
+    }
+
+    private long createCar(String vin) throws Exception {
+        String response = mvc.perform(post("/api/cars").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("vin", vin, "make", "Skoda", "model", "Octavia",
+                                "yearOfManufacture", 2022, "ownerId", 1L))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("id").asLong();
+    }
+
+    private long createPolicy(long carId, String startDate, String endDate) throws Exception {
+        String response = mvc.perform(post("/api/policies").contentType(MediaType.APPLICATION_JSON)
+                        .content(policy(carId, startDate, endDate)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("id").asLong();
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.carins;
+
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.ClaimRepository;
+import com.example.carins.repo.ExpiryCheckpointRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.OwnerRepository;
+import com.example.carins.service.SyntheticDataGenerator;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.function.Executable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs every repository query against a synthetic dataset, EXPLAINs the SQL Hibernate sent and fails when a
+ * table is read without an index condition, i.e. a full table scan or an unbounded index scan. Queries that
+ * are meant to read whole tables (exports, index rebuilds) name those tables; they may be scanned, others may not.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:carins-plans;DB_CLOSE_DELAY=-1",
+        "carins.claims.journal.dir=target/claim-journal/${random.uuid}"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTests {
+
+    private static final List<String> recorded = new CopyOnWriteArrayList<>();
+    // H2 prints the access path of each table as a comment: /* PUBLIC.IDX_NAME: COLUMN = ?1 */ or /* PUBLIC.CAR.tableScan */
+    private static final Pattern ACCESS = Pattern.compile("\"PUBLIC\"\\.\"(\\w+)\" \"\\w+\"\\s+/\\* PUBLIC\\.([\\w.]+)(:[^*]+)?\\s*\\*/");
+
+    @TestConfiguration
+    static class StatementRecorder {
+        @Bean
+        HibernatePropertiesCustomizer statementRecorder() {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, (StatementInspector) sql -> {
+                recorded.add(sql);
+                return sql;
+            });
+        }
+    }
+
+    @Autowired CarRepository carRepository;
+    @Autowired InsurancePolicyRepository policyRepository;
+    @Autowired ClaimRepository claimRepository;
+    @Autowired OwnerRepository ownerRepository;
+    @Autowired SyntheticDataGenerator generator;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired TransactionTemplate tx;
+
+    private final Map<String, PlanCheck> checks = new LinkedHashMap<>();
+
+    private record PlanCheck(Runnable query, Set<String> wholeTables) {}
+
+    @BeforeAll
+    void loadDataset() {
+        generator.generate(new SyntheticDataGenerator.Spec(2_000, 20_000, 4, 4, 0.05, 7));
+        jdbc.execute("ANALYZE");
+
+        LocalDate date = LocalDate.parse("2025-06-01");
+        List<Long> cars = List.of(100L, 2_000L, 15_000L);
+        check("CarRepository.findAll", Set.of("CAR", "OWNER"), () -> carRepository.findAll());
+        check("CarRepository.findByVin", () -> carRepository.findByVin("VIN67890"));
+        check("CarRepository.streamAllIds", Set.of("CAR"), () -> consume(carRepository.streamAllIds()));
+        check("CarRepository.findIdByVin", () -> carRepository.findIdByVin("VIN67890"));
+        check("CarRepository.findExistingVins", () -> carRepository.findExistingVins(List.of("VIN12345", "VIN67890")));
+        check("CarRepository.incrementVersions", () -> carRepository.incrementVersions(cars));
+        check("CarRepository.findAllCarDtos", Set.of("CAR", "OWNER"), () -> carRepository.findAllCarDtos());
+        check("CarRepository.findCarDtoById", () -> carRepository.findCarDtoById(2L));
+        check("CarRepository.findCarDtosAfter", () -> carRepository.findCarDtosAfter(1_000L, Limit.of(100)));
+        check("CarRepository.findCarDtosByIds", () -> carRepository.findCarDtosByIds(cars));
+        check("CarRepository.findOwnedCarsAfter", () -> carRepository.findOwnedCarsAfter(1L, 0L, Limit.of(100)));
+        check("CarRepository.countByOwnerId", () -> carRepository.countByOwnerId(1L));
+        check("InsurancePolicyRepository.findActiveOnDateByCarIds", () -> policyRepository.findActiveOnDateByCarIds(cars, date));
+        check("InsurancePolicyRepository.existsActiveOnDate", () -> policyRepository.existsActiveOnDate(100L, date));
+        check("InsurancePolicyRepository.findByCarId", () -> policyRepository.findByCarId(100L));
+        check("InsurancePolicyRepository.streamAllIntervals", Set.of("INSURANCEPOLICY"), () -> consume(policyRepository.streamAllIntervals()));
+        check("InsurancePolicyRepository.findIntervalsByCarId", () -> policyRepository.findIntervalsByCarId(100L));
+        check("InsurancePolicyRepository.findIntervalsByCarIds", () -> policyRepository.findIntervalsByCarIds(cars));
+        check("InsurancePolicyRepository.findSpansByCarIds", () -> policyRepository.findSpansByCarIds(cars,
+                LocalDate.parse("2024-01-01"), LocalDate.parse("2024-12-31")));
+        check("InsurancePolicyRepository.streamAllProviderIntervals", Set.of("INSURANCEPOLICY"), () -> consume(policyRepository.streamAllProviderIntervals()));
+        check("InsurancePolicyRepository.streamAllSpans", Set.of("INSURANCEPOLICY"), () -> consume(policyRepository.streamAllSpans()));
+        check("InsurancePolicyRepository.findOverlappingIds", () -> policyRepository.findOverlappingIds(2_000L, 0L,
+                LocalDate.parse("2024-01-01"), LocalDate.parse("2024-12-31"), Limit.of(10)));
+        check("InsurancePolicyRepository.findProviderIntervalsByCarIds", () -> policyRepository.findProviderIntervalsByCarIds(cars));
+        check("InsurancePolicyRepository.streamHistory", () -> consume(policyRepository.streamHistory(
+                100L, LocalDate.MIN, 0L, LocalDate.MAX, Limit.of(50))));
+        check("InsurancePolicyRepository.findExpiredAfter", () -> policyRepository.findExpiredAfter(
+                date, 0L, date.plusDays(7), Limit.of(500)));
+        check("ClaimRepository.findByCarId", () -> claimRepository.findByCarId(100L));
+        check("ClaimRepository.streamHistory", () -> consume(claimRepository.streamHistory(
+                100L, LocalDate.MIN, 0L, LocalDate.MAX, Limit.of(50))));
+        check("ClaimRepository.streamAmountRows", Set.of("CLAIM", "CAR"), () -> consume(claimRepository.streamAmountRows()));
+        check("ClaimRepository.findAmountRowsByIds", () -> claimRepository.findAmountRowsByIds(List.of(10L, 500L, 40_000L)));
+        check("ClaimRepository.findTotalsByCarIds", () -> claimRepository.findTotalsByCarIds(cars));
+        check("ClaimRepository.findBySubmissionIds", () -> claimRepository.findBySubmissionIds(List.of("a", "b")));
+        check("OwnerRepository.findOwnerDtoById", () -> ownerRepository.findOwnerDtoById(1L));
+        check("OwnerRepository.findExistingIds", () -> ownerRepository.findExistingIds(List.of(1L, 2L, 500L)));
+    }
+
+    @Test
+    void everyRepositoryQueryHasAPlanCheck() {
+        Set<String> declared = new TreeSet<>();
+        for (Class<?> repository : List.of(CarRepository.class, InsurancePolicyRepository.class, ClaimRepository.class,
+                OwnerRepository.class, ExpiryCheckpointRepository.class)) {
+            Arrays.stream(repository.getDeclaredMethods())
+                    .filter(method -> !method.isDefault() && !method.isSynthetic())
+                    .map(Method::getName)
+                    .forEach(name -> declared.add(repository.getSimpleName() + "." + name));
+        }
+        declared.removeAll(checks.keySet());
+
+        assertTrue(declared.isEmpty(), "Repository queries without a plan check: " + declared);
+    }
+
+    @Test
+    void repositoryQueriesDoNotScanWholeTables() {
+        List<Executable> assertions = new ArrayList<>();
+        checks.forEach((name, check) -> assertions.add(() -> assertIndexed(name, check)));
+
+        assertAll(assertions);
+    }
+
+    private void assertIndexed(String name, PlanCheck check) {
+        recorded.clear();
+        tx.executeWithoutResult(status -> check.query().run());
+        List<String> statements = List.copyOf(recorded);
+        assertFalse(statements.isEmpty(), name + " sent no SQL");
+
+        for (String sql : statements) {
+            String plan = jdbc.queryForObject("EXPLAIN " + sql, String.class);
+            Matcher access = ACCESS.matcher(plan);
+            int tables = 0;
+            while (access.find()) {
+                tables++;
+                String table = access.group(1);
+                boolean bounded = access.group(3) != null;
+                assertTrue(bounded || check.wholeTables().contains(table),
+                        name + " reads " + table + " without an index condition (" + access.group(2) + "):\n" + plan);
+            }
+            assertTrue(tables > 0, name + ": no table access found in plan:\n" + plan);
+        }
+    }
+
+    private void check(String name, Runnable query) {
+        check(name, Set.of(), query);
+    }
+
+    private void check(String name, Set<String> wholeTables, Runnable query) {
+        checks.put(name, new PlanCheck(query, wholeTables));
+    }
+
+    private static void consume(Stream<?> stream) {
+        try (stream) {
+            stream.forEach(row -> {});
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.carins;
+
+import com.example.carins.model.InsurancePolicy;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// runs against its own database so the schema of the main test context is left alone
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:carins-l2cache;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "carins.claims.journal.dir=target/claim-journal/${random.uuid}"})
+@ActiveProfiles("l2cache")
+class SecondLevelCacheTests {
+
+    @Autowired
+    InsurancePolicyRepository policyRepository;
+
+    @Autowired
+    CarRepository carRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void clearCaches() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+    }
+
+    @Test
+    void policyLoadedByIdIsServedFromTheSecondLevelCache() {
+        policyRepository.findById(1L).orElseThrow();
+        long statements = statementsDuring(() -> policyRepository.findById(1L).orElseThrow());
+
+        assertEquals(0, statements);
+    }
+
+    @Test
+    void existsActiveOnDateIsServedFromTheQueryCacheUntilPoliciesChange() {
+        LocalDate date = LocalDate.parse("2025-06-01");
+        assertTrue(policyRepository.existsActiveOnDate(2L, date));
+        assertEquals(0, statementsDuring(() -> policyRepository.existsActiveOnDate(2L, date)));
+
+        var car = carRepository.findById(3L).orElseThrow();
+        policyRepository.save(new InsurancePolicy(car, "Allianz", date, date.plusDays(30)));
+
+        assertTrue(statementsDuring(() -> assertTrue(policyRepository.existsActiveOnDate(3L, date))) > 0);
+    }
+
+    @Test
+    void findByVinIsServedFromTheQueryAndEntityCaches() {
+        carRepository.findByVin("VIN67890").orElseThrow();
+        long statements = statementsDuring(() -> assertEquals(2L, carRepository.findByVin("VIN67890").orElseThrow().getId()));
+
+        assertEquals(0, statements);
+    }
+
+    private long statementsDuring(Runnable action) {
+        long before = statistics.getPrepareStatementCount();
+        action.run();
+        return statistics.getPrepareStatementCount() - before;
+    }
+}